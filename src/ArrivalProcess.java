@@ -0,0 +1,73 @@
+import java.util.Random;
+
+public class ArrivalProcess {
+    /*
+     * Customer arrival times from an hourly rate profile (a non-homogeneous
+     * Poisson process), repeating the profile when the run is longer, or at
+     * a fixed interval. Used by the models of Checkout.java that run a
+     * profile (Model 3, its parallel version, the long-horizon run and the
+     * what-if branches), which pass their own generator, and by the models
+     * of Checkout1.java, which pass the shared RAND. Checkout.Model2 uses
+     * the fixed interval; Checkout.Model1 keeps its own.
+     */
+
+    // arrival rate for each hour of the profile, in customers per second
+    private final double[] ratePerSecond;
+    private final double maxRatePerSecond;
+    private final Random random;
+    // seconds between arrivals, 0 for arrivals from the rate profile
+    private final int fixedInterval;
+    private double nextArrivalTime;
+
+    // Copy of another arrival process that draws from the given generator from now on
+    public ArrivalProcess(ArrivalProcess other, Random random) {
+        this.ratePerSecond = other.ratePerSecond;
+        this.maxRatePerSecond = other.maxRatePerSecond;
+        this.random = random;
+        this.fixedInterval = other.fixedInterval;
+        this.nextArrivalTime = other.nextArrivalTime;
+    }
+
+    public ArrivalProcess(double[] customersPerHour, Random random) {
+        this.ratePerSecond = new double[customersPerHour.length];
+        double maxRate = 0;
+        for (int i = 0; i < customersPerHour.length; i++) {
+            this.ratePerSecond[i] = customersPerHour[i] / 3600.0;
+            maxRate = Math.max(maxRate, this.ratePerSecond[i]);
+        }
+        this.maxRatePerSecond = maxRate;
+        this.random = random;
+        this.fixedInterval = 0;
+        this.nextArrivalTime = maxRate > 0 ? this.sampleArrivalAfter(0) : Double.POSITIVE_INFINITY;
+    }
+
+    // A customer at second 0 and then every intervalSeconds seconds; draws no random numbers
+    public ArrivalProcess(int intervalSeconds) {
+        this.ratePerSecond = new double[0];
+        this.maxRatePerSecond = 0;
+        this.random = null;
+        this.fixedInterval = intervalSeconds;
+        this.nextArrivalTime = 0;
+    }
+
+    public long getNextArrivalSecond() {
+        return (long) this.nextArrivalTime;
+    }
+
+    // Move on to the arrival after the current next one
+    public void advance() {
+        this.nextArrivalTime = this.fixedInterval > 0 ? this.nextArrivalTime + this.fixedInterval
+                : this.sampleArrivalAfter(this.nextArrivalTime);
+    }
+
+    // Thinning: propose arrivals at the peak rate, keep each one with probability rate / peak rate
+    private double sampleArrivalAfter(double time) {
+        while (true) {
+            time -= StrictMath.log(1.0 - this.random.nextDouble()) / this.maxRatePerSecond;
+            double rate = this.ratePerSecond[(int) ((long) (time / 3600) % this.ratePerSecond.length)];
+            if (rate == this.maxRatePerSecond || this.random.nextDouble() * this.maxRatePerSecond < rate) {
+                return time;
+            }
+        }
+    }
+}
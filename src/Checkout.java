@@ -13,37 +13,116 @@
  *    Model 2: n lines for customers, with one checkout station per line. Customers go to the line with the
  *             fewest number of customers.
  *    Model 3: n lines for customers, with one checkout station per line. Customers go to a randomly chosen line.
+ *             Arrivals follow an hourly rate profile (a Poisson process) instead of a fixed interval.
+ *
+ * Stations come in types: regular lanes take any basket, the express lane takes up to 10 items, and
+ * the self-checkout takes up to 20 items but scans slower. The models run a store of five regular
+ * lanes; the mixed store, with an express lane and a self-checkout in place of two regular lanes and
+ * customers bringing 1-35 items, is run as a scenario of its own. A StationRouter keeps, for each
+ * basket size class, the lines that accept it, so picking a random, the shortest or (in Model 1) a
+ * free eligible station does not have to look at every station.
+ *
+ * Customers are not endlessly patient: an arriving customer balks (walks away) when their line is
+ * already too long, and a waiting customer reneges (leaves the line) once their patience runs out.
+ * Patience timeouts and checkout completions are kept in TimingWheels, so each tick only touches
+ * the customers who give up and the stations that finish.
+ *
+ * Model 3 is also run in parallel: since the line choice does not depend on the lines, the arrivals are
+ * routed up front and each line with its station is simulated on its own core, skipping ahead to the
+ * seconds in which something happens on that line.
+ *
+ * Model 2 itself, the what-if run and the long horizon run below all run a StoreSimulation, the one
+ * implementation of the Model 2 loop. The what-if run takes it up to the evening peak and forks it into
+ * branches that open zero, one or two more lanes at that point; the branches then run in parallel.
+ *
+ * The long horizon run is Model 2 for a store with thousands of stations over days to years; it
+ * only runs when asked for, with "--long-horizon [days]" (3 days by default). Times and counts are
+ * 64-bit and wait times are summed with compensated summation, the memory used does not grow with
+ * the run, and the progress is reported in simulated days per second.
  *
  * After each simulation, statistics are displayed, including total customers served, average
- * wait time, and the maximum queue length observed.
+ * wait time, the maximum queue length observed, and how many customers balked or reneged.
  */
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 public class Checkout {
+    // The default store: five regular lanes
+    private static final StationType[] REGULAR_STORE = {StationType.REGULAR, StationType.REGULAR,
+            StationType.REGULAR, StationType.REGULAR, StationType.REGULAR};
+    // The mixed store: three regular lanes, an express lane and a self-checkout. Its customers bring
+    // 1-35 items instead of 10-35, or hardly anyone would qualify for the express lane
+    private static final StationType[] MIXED_STORE = {StationType.REGULAR, StationType.REGULAR, StationType.REGULAR,
+            StationType.EXPRESS, StationType.SELF_CHECKOUT};
+    private static final int MIXED_STORE_MIN_ITEMS = 1;
+
+    private static final String USAGE = "usage: java Checkout [--long-horizon [days]]\n"
+            + "  without arguments: run the models and the what-if branches\n"
+            + "  --long-horizon:    run only the long horizon Model 2, for days >= 1 simulated days (default 3)";
     public static void main(String[] args) {
         Checkout simulation = new Checkout();
+        if (args.length > 0) {
+            long simulationDays = args.length > 1 ? parseDays(args[1]) : 3;
+            if (!args[0].equals("--long-horizon") || args.length > 2
+                    || simulationDays < 1 || simulationDays > Long.MAX_VALUE / (24 * 60 * 60)) {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            simulation.LongHorizon(simulationDays); // e.g. 365 for a year
+            return;
+        }
+
         simulation.Model1();
         System.out.print("\n");
         simulation.Model2();
         System.out.print("\n");
         simulation.Model3();
+        System.out.print("\n");
+        simulation.Model3Parallel();
+        System.out.print("\n");
+        simulation.MixedStore();
+        System.out.print("\n");
+        simulation.WhatIfMoreLanes();
+    }
+
+    // Number of days of the long horizon run, or -1 if the argument is not a whole number
+    private static long parseDays(String arg) {
+        try {
+            return Long.parseLong(arg);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     public void Model1() {
+        this.Model1(REGULAR_STORE, Customer.MIN_ITEMS); // change this to experiment
+    }
+
+    // Model 1 for a store with the given stations, and customers with min_items to Customer.MAX_ITEMS items
+    public void Model1(StationType[] station_types, int min_items) {
         final int simulation_duration = 2 * 60 * 60; // two hours in seconds
-        final int num_stations = 5; // change this to experiment
+        final int num_stations = station_types.length;
         final int new_customer_arrival_rate = 30; // new customer every 30 seconds
+        final int balk_line_length = 8; // arriving customers walk away from a line this long
 
         // Create an empty queue
         Queue<Customer> customer_line = new Queue<>();
+        TimingWheel<Customer> patience_timeouts = new TimingWheel<>(0);
+        TimingWheel<Integer> checkout_completions = new TimingWheel<>(0);
+        Random random = new Random();
 
-        // Create checkout stations
+        // Create checkout stations; with one shared line, the router's line length of a station is
+        // 1 while it is busy and 0 while it is free, so its shortest line is a free station
         CheckoutStation[] stations = new CheckoutStation[num_stations];
         for (int i = 0; i < num_stations; i++) {
-            stations[i] = new CheckoutStation();
+            stations[i] = new CheckoutStation(station_types[i]);
         }
+        StationRouter router = new StationRouter(stations);
 
         StatisticsTracker stats = new StatisticsTracker();
         int next_customer_arrival_time = 0;
@@ -53,28 +132,48 @@ public class Checkout {
 
             // Add a new customer to the queue at a certain frequency
             if (currentSecond >= next_customer_arrival_time) {
-                Customer newCustomer = new Customer(currentSecond);
+                Customer newCustomer = new Customer(currentSecond, random, min_items);
                 newCustomer.setQueueEntrySecond(currentSecond);
-                customer_line.enqueue(newCustomer);
+                stats.recordArrival();
+                if (customer_line.size() >= balk_line_length
+                        || router.getShortestLine(newCustomer.getNumItems()) < 0) {
+                    stats.recordBalk();
+                } else {
+                    customer_line.enqueue(newCustomer);
+                    newCustomer.setPatienceTimer(patience_timeouts.schedule(newCustomer,
+                            currentSecond + newCustomer.getPatience()));
+                }
                 next_customer_arrival_time += new_customer_arrival_rate;
             }
 
+            // Customers who ran out of patience leave the line
+            patience_timeouts.advance(currentSecond, customer -> {
+                customer_line.remove(customer);
+                stats.recordRenege();
+            });
+
             // Update max queue length for stats
             stats.updateMaxQueue(customer_line.size());
 
-            // Assign waiting customers to available stations
-            for (CheckoutStation station : stations) {
-                if (station.isAvailable() && !customer_line.isEmpty()) {
-                    Customer nextCustomer = customer_line.dequeue();
-                    station.assignCustomer(nextCustomer, currentSecond);
-                    stats.recordCustomer(nextCustomer);
+            // Assign waiting customers to available stations: the customer at the head of the line
+            // takes the first free station that accepts their basket, or everyone keeps waiting
+            while (!customer_line.isEmpty()) {
+                int i = router.getShortestLine(customer_line.peek().getNumItems());
+                if (!stations[i].isAvailable()) {
+                    break;
                 }
+                Customer nextCustomer = customer_line.dequeue();
+                patience_timeouts.cancel(nextCustomer.getPatienceTimer());
+                checkout_completions.schedule(i, stations[i].assignCustomer(nextCustomer, currentSecond, random));
+                router.setLineLength(i, 1);
+                stats.recordCustomer(nextCustomer);
             }
 
-            // Advance time in each station
-            for (CheckoutStation station : stations) {
-                station.tick();
-            }
+            // Free the stations whose customer is done by the end of this second
+            checkout_completions.advance(currentSecond + 1, i -> {
+                stations[i].release();
+                router.setLineLength(i, 0);
+            });
         }
 
         // Report results
@@ -85,64 +184,27 @@ public class Checkout {
         System.out.printf("Average wait time: %d minutes %d seconds%n", (int) (stats.getAverageWaitTime() / 60),
                 (int) (stats.getAverageWaitTime() % 60));
         System.out.println("Maximum queue length: " + stats.getMaxQueueLength());
+        System.out.printf("Customers balked: %d (%.1f%%)%n", stats.getTotalCustomersBalked(),
+                stats.getBalkRate() * 100);
+        System.out.printf("Customers reneged: %d (%.1f%%)%n", stats.getTotalCustomersReneged(),
+                stats.getRenegeRate() * 100);
         // System.out.printf("Average wait time: %.2f minutes%n", stats.getAverageWaitTime() / 60.0);
     }
 
     public void Model2() {
+        this.Model2(REGULAR_STORE, Customer.MIN_ITEMS);
+    }
+
+    // Model 2 for a store with the given stations, and customers with minItems to Customer.MAX_ITEMS items
+    public void Model2(StationType[] stationTypes, int minItems) {
         final int simulationDuration = 2 * 60 * 60; // two hours in seconds
-        final int numStations = 5;
         final int customerArrivalRate = 30; // new customer every 30 seconds
+        final int balkLineLength = 8; // arriving customers walk away from a line this long
 
-        // Each station has its own queue
-        Queue<Customer>[] stationQueues = new Queue[numStations];
-        CheckoutStation[] stations = new CheckoutStation[numStations];
-        for (int i = 0; i < numStations; i++) {
-            stationQueues[i] = new Queue<>();
-            stations[i] = new CheckoutStation();
-        }
-
-        StatisticsTracker tracker = new StatisticsTracker();
-        int nextArrivalTime = 0;
-
-        for (int currentSecond = 0; currentSecond < simulationDuration; currentSecond++) {
-            // New customer arrives at fixed intervals
-            if (currentSecond >= nextArrivalTime) {
-                Customer customer = new Customer(currentSecond);
-
-                // Find the line with the fewest customers
-                int shortestLineIndex = 0;
-                int shortestSize = stationQueues[0].size();
-                for (int i = 1; i < numStations; i++) {
-                    int queueSize = stationQueues[i].size();
-                    if (queueSize < shortestSize) {
-                        shortestLineIndex = i;
-                        shortestSize = queueSize;
-                    }
-                }
-
-                // Add the customer to the shortest queue
-                stationQueues[shortestLineIndex].enqueue(customer);
-
-                // Update max queue length tracker
-                tracker.updateMaxQueue(stationQueues[shortestLineIndex].size());
-
-                nextArrivalTime += customerArrivalRate;
-            }
-
-            // For each station: if available, serve next customer from its queue
-            for (int i = 0; i < numStations; i++) {
-                if (stations[i].isAvailable() && !stationQueues[i].isEmpty()) {
-                    Customer nextCustomer = stationQueues[i].dequeue();
-                    stations[i].assignCustomer(nextCustomer, currentSecond);
-                    tracker.recordCustomer(nextCustomer);
-                }
-            }
-
-            // Tick each checkout station
-            for (CheckoutStation station : stations) {
-                station.tick();
-            }
-        }
+        StoreSimulation store = new StoreSimulation(stationTypes, new ArrivalProcess(customerArrivalRate),
+                new Random(), minItems, balkLineLength);
+        store.runUntil(simulationDuration);
+        StatisticsTracker tracker = store.getStatistics();
 
         // Print final stats
         System.out.println("=== Model 2: Each Station Has Its Own Line; customers choose the shortest line ===");
@@ -151,50 +213,14 @@ public class Checkout {
         System.out.printf("Average wait time: %d minutes %d seconds%n", (int) (tracker.getAverageWaitTime() / 60),
                 (int) (tracker.getAverageWaitTime() % 60));
         System.out.println("Maximum queue length observed in any line: " + tracker.getMaxQueueLength());
+        System.out.printf("Customers balked: %d (%.1f%%)%n", tracker.getTotalCustomersBalked(),
+                tracker.getBalkRate() * 100);
+        System.out.printf("Customers reneged: %d (%.1f%%)%n", tracker.getTotalCustomersReneged(),
+                tracker.getRenegeRate() * 100);
     }
 
     public void Model3() {
-    final int simulation_duration = 2 * 60 * 60; // two hours in seconds
-    final int num_stations = 5;
-    final int new_customer_arrival_rate = 30; // new customer every 30 seconds
-
-    Queue<Customer>[] lines = new Queue[num_stations];
-    CheckoutStation[] stations = new CheckoutStation[num_stations];
-    StatisticsTracker tracker = new StatisticsTracker();
-    Random random = new Random();
-
-    for (int i = 0; i < num_stations; i++) {
-        lines[i] = new Queue<>();
-        stations[i] = new CheckoutStation();
-    }
-
-    for (int currentSecond = 0; currentSecond < simulation_duration; currentSecond++) {
-        // Fixed-rate customer arrival
-        if (currentSecond % new_customer_arrival_rate == 0) {
-            Customer customer = new Customer(currentSecond);  // uses existing constructor
-            int randomLine = random.nextInt(num_stations);    // randomly pick a line
-            lines[randomLine].enqueue(customer);
-        }
-
-        // Assign customers from each line to their station
-        for (int i = 0; i < num_stations; i++) {
-            if (stations[i].isAvailable() && !lines[i].isEmpty()) {
-                Customer nextCustomer = lines[i].dequeue();
-                stations[i].assignCustomer(nextCustomer, currentSecond);
-                tracker.recordCustomer(nextCustomer);
-            }
-        }
-
-        // Tick each checkout station
-        for (int i = 0; i < num_stations; i++) {
-            stations[i].tick();
-        }
-
-        // Update max queue length tracker
-        for (int i = 0; i < num_stations; i++) {
-            tracker.updateMaxQueue(lines[i].size());
-        }
-    }
+    StatisticsTracker tracker = this.simulateModel3(new Random().nextLong(), 2 * 60 * 60); // two hours in seconds
 
     // Output results
     System.out.println("=== Model 3: Each Station Has Its Own Line; customers choose a random line ===");
@@ -203,111 +229,295 @@ public class Checkout {
     System.out.printf("Average wait time: %d minutes %d seconds%n", (int) (tracker.getAverageWaitTime() / 60),
             (int) (tracker.getAverageWaitTime() % 60));
     System.out.println("Maximum queue length observed in any line: " + tracker.getMaxQueueLength());
+    System.out.printf("Customers balked: %d (%.1f%%)%n", tracker.getTotalCustomersBalked(),
+            tracker.getBalkRate() * 100);
+    System.out.printf("Customers reneged: %d (%.1f%%)%n", tracker.getTotalCustomersReneged(),
+            tracker.getRenegeRate() * 100);
     }
-}
 
-class Customer {
-    // private int arrivalSecond;
-    private final int numItems;
-    private int paymentTime;
-    private int queueEntrySecond;
-    private int startCheckoutSecond;
+    // Model 3 with all random numbers drawn from one seeded generator, so a run can be repeated
+    public StatisticsTracker simulateModel3(long seed, int simulation_duration) {
+        final StationType[] station_types = REGULAR_STORE;
+        final int num_stations = station_types.length;
+        final int new_customer_arrival_rate = 30; // new customer every 30 seconds on average
+        final double[] customers_per_hour = {3600.0 / new_customer_arrival_rate}; // one rate per hour, repeats
+        final int balk_line_length = 8; // arriving customers walk away from a line this long
 
-    public Customer(int queueEntrySecond) {
-        Random random = new Random();
-        this.queueEntrySecond = queueEntrySecond;
-        this.numItems = random.nextInt(10, 36);         // 10–35 items
-        this.paymentTime = random.nextInt(20, 61);     // 20-60 seconds
-    }
+        Queue<Customer>[] lines = new Queue[num_stations];
+        CheckoutStation[] stations = new CheckoutStation[num_stations];
+        StatisticsTracker tracker = new StatisticsTracker();
+        TimingWheel<Customer> patience_timeouts = new TimingWheel<>(0);
+        TimingWheel<CheckoutStation> checkout_completions = new TimingWheel<>(0);
+        Random random = new Random(seed);
+        ArrivalProcess arrivals = new ArrivalProcess(customers_per_hour, random);
 
-    /*public int getArrivalSecond() {
-        return this.arrivalSecond;
-    }*/
+        for (int i = 0; i < num_stations; i++) {
+            lines[i] = new Queue<>();
+            stations[i] = new CheckoutStation(station_types[i]);
+        }
+        StationRouter router = new StationRouter(stations);
+        // Lines a customer joined in the current second, a line once per customer
+        List<Integer> joinedLines = new ArrayList<>();
 
-    public int getNumItems() {
-        return this.numItems;
-    }
+        for (int currentSecond = 0; currentSecond < simulation_duration; currentSecond++) {
 
-    public int getPaymentTime() {
-        return this.paymentTime;
-    }
+            // Customers arrive at the rate for the current hour
+            while (arrivals.getNextArrivalSecond() <= currentSecond) {
+                arrivals.advance();
+                Customer customer = new Customer(currentSecond, random);
+                // random line that takes the basket
+                int randomLine = router.getRandomLine(customer.getNumItems(), random);
+                tracker.recordArrival();
+                if (randomLine < 0 || lines[randomLine].size() >= balk_line_length) {
+                    tracker.recordBalk();
+                } else {
+                    lines[randomLine].enqueue(customer);
+                    customer.setLineIndex(randomLine);
+                    customer.setPatienceTimer(patience_timeouts.schedule(customer,
+                            currentSecond + customer.getPatience()));
+                    joinedLines.add(randomLine);
+                }
+            }
 
-    public void setQueueEntrySecond(int second) {
-        this.queueEntrySecond = second;
+            // Customers who ran out of patience leave their line
+            patience_timeouts.advance(currentSecond, customer -> {
+                lines[customer.getLineIndex()].remove(customer);
+                tracker.recordRenege();
+            });
+
+            // Assign customers from each line to their station
+            for (int i = 0; i < num_stations; i++) {
+                if (stations[i].isAvailable() && !lines[i].isEmpty()) {
+                    Customer nextCustomer = lines[i].dequeue();
+                    patience_timeouts.cancel(nextCustomer.getPatienceTimer());
+                    checkout_completions.schedule(stations[i],
+                            stations[i].assignCustomer(nextCustomer, currentSecond, random));
+                    tracker.recordCustomer(nextCustomer);
+                }
+            }
+
+            // Free the stations whose customer is done by the end of this second
+            checkout_completions.advance(currentSecond + 1, CheckoutStation::release);
+
+            // Update max queue length tracker; a line only grows in a second a customer joins it,
+            // so only the lines joined in this second can be longer than before
+            for (int i : joinedLines) {
+                tracker.updateMaxQueue(lines[i].size());
+            }
+            joinedLines.clear();
+        }
+        return tracker;
     }
 
-    public void setStartCheckoutSecond(int second) {
-        this.startCheckoutSecond = second;
+    public void Model3Parallel() {
+        // two hours in seconds
+        StatisticsTracker tracker = this.simulateModel3Parallel(new Random().nextLong(), 2 * 60 * 60);
+
+        // Output results
+        System.out.println("=== Model 3 (parallel): Each Station Has Its Own Line; customers choose a random line ===");
+        System.out.println("Total customers served: " + tracker.getTotalCustomersServed());
+        System.out.printf("Average wait time: %d minutes %d seconds%n", (int) (tracker.getAverageWaitTime() / 60),
+                (int) (tracker.getAverageWaitTime() % 60));
+        System.out.println("Maximum queue length observed in any line: " + tracker.getMaxQueueLength());
+        System.out.printf("Customers balked: %d (%.1f%%)%n", tracker.getTotalCustomersBalked(),
+                tracker.getBalkRate() * 100);
+        System.out.printf("Customers reneged: %d (%.1f%%)%n", tracker.getTotalCustomersReneged(),
+                tracker.getRenegeRate() * 100);
     }
 
-    public int getWaitTime() {
-        return this.startCheckoutSecond - this.queueEntrySecond;
+    // Models 1 and 2 for the mixed store, whose express lane and self-checkout only take small baskets
+    public void MixedStore() {
+        System.out.println("=== Mixed store: 3 regular lanes, an express lane (up to "
+                + StationType.EXPRESS.getMaxItems() + " items) and a self-checkout (up to "
+                + StationType.SELF_CHECKOUT.getMaxItems() + " items); customers bring "
+                + MIXED_STORE_MIN_ITEMS + "-" + Customer.MAX_ITEMS + " items ===");
+        this.Model1(MIXED_STORE, MIXED_STORE_MIN_ITEMS);
+        System.out.print("\n");
+        this.Model2(MIXED_STORE, MIXED_STORE_MIN_ITEMS);
     }
 
-    public int getTotalCheckoutTime() {
-        Random random = new Random();
-        int scanTime = 0;
-        for (int i = 0; i < this.numItems; i++) {
-            scanTime += random.nextInt(3) + 4;  // 4–6 seconds per item
+    // Model 3 in parallel from a seed; the checkout times of each line come from a generator of its own,
+    // so the results follow the same distribution as simulateModel3 but do not match it draw for draw
+    public StatisticsTracker simulateModel3Parallel(long seed, int simulation_duration) {
+        final StationType[] station_types = REGULAR_STORE;
+        final int num_stations = station_types.length;
+        final int new_customer_arrival_rate = 30; // new customer every 30 seconds on average
+        final double[] customers_per_hour = {3600.0 / new_customer_arrival_rate}; // one rate per hour, repeats
+        final int balk_line_length = 8; // arriving customers walk away from a line this long
+
+        Random random = new Random(seed);
+        ArrivalProcess arrivals = new ArrivalProcess(customers_per_hour, random);
+        CheckoutStation[] stations = new CheckoutStation[num_stations];
+        for (int i = 0; i < num_stations; i++) {
+            stations[i] = new CheckoutStation(station_types[i]);
         }
-        return scanTime + this.paymentTime;
-    }
-}
+        StationRouter router = new StationRouter(stations);
 
-class CheckoutStation {
-    private Customer currentCustomer;
-    private int secondsRemaining;
+        // Route every arrival up front; the random line choice never looks at the lines
+        StatisticsTracker tracker = new StatisticsTracker();
+        List<List<Customer>> arrivals_per_line = new ArrayList<>();
+        for (int i = 0; i < num_stations; i++) {
+            arrivals_per_line.add(new ArrayList<>());
+        }
+        while (arrivals.getNextArrivalSecond() < simulation_duration) {
+            Customer customer = new Customer(arrivals.getNextArrivalSecond(), random);
+            int randomLine = router.getRandomLine(customer.getNumItems(), random);
+            if (randomLine < 0) {    // no station takes this basket
+                tracker.recordArrival();
+                tracker.recordBalk();
+            } else {
+                arrivals_per_line.get(randomLine).add(customer);
+            }
+            arrivals.advance();
+        }
 
-    public boolean isAvailable() {
-        return this.currentCustomer == null;
+        // Each line and its station is now a queue of its own, so simulate the lines side by side
+        long[] line_seeds = new long[num_stations];
+        for (int i = 0; i < num_stations; i++) {
+            line_seeds[i] = random.nextLong();
+        }
+        tracker.merge(IntStream.range(0, num_stations).parallel()
+                .mapToObj(i -> simulateLine(arrivals_per_line.get(i), stations[i], simulation_duration,
+                        balk_line_length, new Random(line_seeds[i])))
+                .collect(StatisticsTracker::new, StatisticsTracker::merge, StatisticsTracker::merge));
+        return tracker;
     }
 
-    public void assignCustomer(Customer customer, int currentSecond) {
-        this.currentCustomer = customer;
-        customer.setStartCheckoutSecond(currentSecond);
-        this.secondsRemaining = customer.getTotalCheckoutTime();
-    }
+    public void WhatIfMoreLanes() {
+        final StationType[] station_types = REGULAR_STORE;
+        final double[] customers_per_hour = {120, 120, 200, 200}; // from 15:00; the evening peak starts at 17:00
+        final int peak_start = 2 * 60 * 60;
+        final int simulation_duration = 4 * 60 * 60;
+        final int balk_line_length = 8;
 
-    public void tick() {
-        if (this.currentCustomer != null) {
-            this.secondsRemaining--;
-            if (secondsRemaining <= 0) {
-                this.currentCustomer = null;
+        // Run the shared history once, up to 17:00
+        Random random = new Random();
+        StoreSimulation store = new StoreSimulation(station_types, new ArrivalProcess(customers_per_hour, random),
+                random, Customer.MIN_ITEMS, balk_line_length);
+        store.runUntil(peak_start);
+
+        // Fork the store at 17:00 into branches with 0, 1 and 2 extra lanes, and run them side by side
+        List<StoreSimulation> branches = new ArrayList<>();
+        for (int extra_lanes = 0; extra_lanes <= 2; extra_lanes++) {
+            StoreSimulation branch = store.fork();
+            for (int i = 0; i < extra_lanes; i++) {
+                branch.openStations(StationType.REGULAR);
             }
+            branches.add(branch);
+        }
+        branches.parallelStream().forEach(branch -> branch.runUntil(simulation_duration));
+
+        System.out.println("=== What if: more lanes open at the 17:00 peak (Model 2 routing) ===");
+        for (StoreSimulation branch : branches) {
+            StatisticsTracker tracker = branch.getStatistics();
+            System.out.printf("%d stations: %d customers served, average wait %d minutes %d seconds, " +
+                            "%.1f%% balked, %.1f%% reneged%n",
+                    branch.getStationCount(), tracker.getTotalCustomersServed(),
+                    (int) (tracker.getAverageWaitTime() / 60), (int) (tracker.getAverageWaitTime() % 60),
+                    tracker.getBalkRate() * 100, tracker.getRenegeRate() * 100);
         }
     }
 
-    /*public boolean isBusy() {
-        return currentCustomer != null;
-    }*/
-}
+    // Model 2 over days, weeks or years of a big store with a StoreSimulation, which runs in constant
+    // memory; the store is run a day at a time to report the progress
+    public void LongHorizon(long simulationDays) {
+        final long secondsPerDay = 24 * 60 * 60;
+        final int numStations = 6000;
+        final StationType[] stationTypes = new StationType[numStations];
+        Arrays.fill(stationTypes, StationType.REGULAR);
+        final double[] customersPerHour = {       // about 1.2 million customers a day, open 8:00-22:00
+                0, 0, 0, 0, 0, 0, 0, 0,
+                28000, 49000, 70000, 91000, 126000, 112000, 77000, 70000, 91000, 133000, 147000, 105000, 63000, 35000,
+                0, 0};
+        final int balkLineLength = 8; // arriving customers walk away from a line this long
 
-class StatisticsTracker {
-    private int totalCustomersServed = 0;
-    private double totalWaitTimeSeconds = 0;
-    private int maxQueueLength = 0;
+        Random random = new Random();
+        StoreSimulation store = new StoreSimulation(stationTypes, new ArrivalProcess(customersPerHour, random),
+                random, Customer.MIN_ITEMS, balkLineLength);
+        StatisticsTracker tracker = store.getStatistics();
+
+        long startNanos = System.nanoTime();
+        long lastReportNanos = startNanos;
+        for (long day = 1; day <= simulationDays; day++) {
+            store.runUntil(day * secondsPerDay);
+
+            // Report progress at the end of a day, at most once a second
+            if (System.nanoTime() - lastReportNanos >= 1_000_000_000L) {
+                lastReportNanos = System.nanoTime();
+                System.out.printf("Day %d of %d: %d customers served, %.2f simulated days/sec%n", day, simulationDays,
+                        tracker.getTotalCustomersServed(), day / ((lastReportNanos - startNanos) / 1e9));
+            }
+        }
 
-    public void recordCustomer(Customer newCustomer) {
-        this.totalCustomersServed++;
-        this.totalWaitTimeSeconds += newCustomer.getWaitTime();
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("=== Long horizon: Model 2 with %d stations over %d days ===%n", numStations, simulationDays);
+        System.out.println("Total customers served: " + tracker.getTotalCustomersServed());
+        System.out.printf("Average wait time: %d minutes %d seconds%n", (int) (tracker.getAverageWaitTime() / 60),
+                (int) (tracker.getAverageWaitTime() % 60));
+        System.out.println("Maximum queue length observed in any line: " + tracker.getMaxQueueLength());
+        System.out.printf("Customers balked: %d (%.1f%%)%n", tracker.getTotalCustomersBalked(),
+                tracker.getBalkRate() * 100);
+        System.out.printf("Customers reneged: %d (%.1f%%)%n", tracker.getTotalCustomersReneged(),
+                tracker.getRenegeRate() * 100);
+        System.out.printf("Simulated %.2f days/sec%n", simulationDays / elapsedSeconds);
     }
 
-    public void updateMaxQueue(int currentQueueSize) {
-        if (currentQueueSize > this.maxQueueLength) {
-            this.maxQueueLength = currentQueueSize;
-        }
-    }
+    // Run one line and its station of Model 3 for the customers routed to it, in arrival order.
+    // A single line needs no timing wheels: its few waiting customers and its one station are checked
+    // directly, and the run skips ahead from one second in which something happens to the next.
+    private StatisticsTracker simulateLine(List<Customer> arriving_customers, CheckoutStation station,
+                                           int simulation_duration, int balk_line_length, Random random) {
+        Queue<Customer> line = new Queue<>();
+        StatisticsTracker tracker = new StatisticsTracker();
+        int next_arrival = 0;
+
+        for (long currentSecond = 0; currentSecond < simulation_duration; currentSecond++) {
+            while (next_arrival < arriving_customers.size()
+                    && arriving_customers.get(next_arrival).getQueueEntrySecond() <= currentSecond) {
+                Customer customer = arriving_customers.get(next_arrival++);
+                tracker.recordArrival();
+                if (line.size() >= balk_line_length) {
+                    tracker.recordBalk();
+                } else {
+                    line.enqueue(customer);
+                }
+            }
 
-    public int getTotalCustomersServed() {
-        return this.totalCustomersServed;
-    }
+            // Customers who ran out of patience leave the line
+            for (Customer waiting : line.toList()) {
+                if (waiting.getQueueEntrySecond() + waiting.getPatience() <= currentSecond) {
+                    line.remove(waiting);
+                    tracker.recordRenege();
+                }
+            }
 
-    public double getAverageWaitTime() {
-        if (this.totalCustomersServed == 0) return 0;
-        return this.totalWaitTimeSeconds / this.totalCustomersServed;
-    }
+            if (station.isAvailable() && !line.isEmpty()) {
+                Customer nextCustomer = line.dequeue();
+                station.assignCustomer(nextCustomer, currentSecond, random);
+                tracker.recordCustomer(nextCustomer);
+            }
+
+            // Free the station if its customer is done by the end of this second
+            if (!station.isAvailable() && station.getCompletionSecond() <= currentSecond + 1) {
+                station.release();
+            }
+
+            tracker.updateMaxQueue(line.size());
 
-    public int getMaxQueueLength() {
-        return this.maxQueueLength;
+            // Skip to the next second in which something can happen: a customer arrives, a waiting
+            // customer runs out of patience, or the station is freed or can take the next customer
+            long next_event = next_arrival < arriving_customers.size()
+                    ? arriving_customers.get(next_arrival).getQueueEntrySecond() : simulation_duration;
+            if (!station.isAvailable()) {
+                next_event = Math.min(next_event, station.getCompletionSecond() - 1);
+            } else if (!line.isEmpty()) {
+                next_event = currentSecond + 1;
+            }
+            for (Customer waiting : line.toList()) {
+                next_event = Math.min(next_event, waiting.getQueueEntrySecond() + waiting.getPatience());
+            }
+            currentSecond = Math.max(currentSecond, next_event - 1);
+        }
+        return tracker;
     }
 }
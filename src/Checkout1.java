@@ -4,8 +4,9 @@
  *
  * Description:
  * This program simulates a grocery store checkout system using three different models.
- * It runs each model for two hours with a 5 checkout
- * stations and a fixed customer arrival rate. Customers have varying numbers of items (10-35) and
+ * It runs each model with a 5 checkout
+ * stations and a fixed customer arrival rate until its statistics converge (at most MODEL_RUN_TIME);
+ * a trading day with hourly arrival rates is simulated as well. Customers have varying numbers of items (10-35) and
  * payment times (15-45), and each checkout station processes customers one at a time.
  *
  * The three models are:
@@ -15,20 +16,49 @@
  *    Model 3: n lines for customers, with one checkout station per line. Customers go to a randomly chosen line.
  *
  * After each simulation, statistics are displayed, including total customers served, average
- * wait time, and the maximum queue length observed.
+ * wait time, and the maximum queue length observed. Runs with a flat arrival rate drop their warm-up
+ * (empty store at the start) from the statistics and stop once the statistics have converged.
+ * Given a seed on the command line, the runs are reproducible, and their statistics are cached on disk
+ * so a rerun of the same scenario is a lookup.
+ * For profiling, the runs emit JFR events: a throughput summary per batch of seconds, and (when turned on
+ * in the recording) one event per phase of each simulated second.
+ * The arrival times come from ArrivalProcess.java, shared with Checkout.java, so the sources are
+ * compiled together.
+ * Model 2 also runs the trading day with a staffing policy that opens checkouts as the lines grow and closes
+ * them as they shrink; the customers in the line of a closing checkout move to the other lines.
  */
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Queue;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Random;
+import java.util.stream.IntStream;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
 
 /**
  * A checkout system model
  */
-public class Checkout {
+public class Checkout1 {
     // A random generator
     private static final Random RAND = new Random();
 
@@ -36,12 +66,39 @@ public class Checkout {
     // logs every second
     private static final boolean ENABLE_DEBUG_LOGGING = false;
 
+    // keep waiting customers off-heap, if set to true (at startup with -Dcheckout.offHeapWaitingLines=true)
+    // for overload runs where the lines grow without bound (see -XX:MaxDirectMemorySize)
+    static boolean useOffHeapWaitingLines = Boolean.getBoolean("checkout.offHeapWaitingLines");
+
+    // steady state detection: batch length, min run time before detecting, min number of steady state
+    // batches, the largest share of the batches discarded as warm-up, and the relative precision
+    // (95% confidence half-width / mean) at which the stats count as converged
+    // at the default load a 5% precision takes ~30-150 simulated hours on average, depending on the model,
+    // and the converged means land within the confidence interval of long reference runs; 10% or more
+    // stops early on a low-variance stretch often enough to bias the means low by a few percent
+    private static final int STEADY_STATE_BATCH_LENGTH_IN_SEC = 60;
+    private static final int STEADY_STATE_MIN_RUN_TIME_IN_SEC = 1800;
+    private static final int STEADY_STATE_MIN_BATCHES = 20;    // at least one per batch means group
+    private static final double STEADY_STATE_MAX_WARM_UP_SHARE = 1.0 / 3;
+    private static final double STEADY_STATE_RELATIVE_PRECISION = 0.05;
+
+    // result cache of seeded runs, and its version; bump the version whenever a model changes its results
+    private static final Path RESULT_CACHE_FILE = Path.of("checkout-results.cache");
+    private static final int RESULT_CACHE_VERSION = 3;
+
     // model parameters
-    final static int MODEL_RUN_TIME = 7200;  // run time
+    final static int MODEL_RUN_TIME = 480 * 3600;  // run time: the longest run, which steady state detection stops
+                                                   // once converged (at the default load within ~390 hours)
     final static int CUSTOMER_ARRIVAL_TIME_IN_SEC  = 30; // customer inter arrival time
     final static int MIN_ITEMS_TO_CHECKOUT = 1; // min items a customer checks out
     final static int MAX_ITEMS_TO_CHECKOUT = 20; // max items a customer checks out
     final static int CHECKOUT_STATION_COUNT = 5;       // checkout count
+    // customers per hour for each hour of an 8:00-22:00 trading day (lunch and evening peaks)
+    final static double[] TRADING_DAY_CUSTOMERS_PER_HOUR = {
+            40, 70, 100, 130, 180, 160, 110, 100, 130, 190, 210, 150, 90, 50};
+    // adaptive staffing over the trading day: checkouts the store has, and the least that stay open
+    final static int STAFFING_MAX_STATION_COUNT = 10;
+    final static int STAFFING_MIN_OPEN_STATION_COUNT = 2;
     // time it takes to check out a single item (min and max)
     private static final int CHECKOUT_DURATION_PER_ITEM_SECOND_MIN = 8;
     private static final int CHECKOUT_DURATION_PER_ITEM_SECOND_MAX = 10;
@@ -59,9 +116,13 @@ public class Checkout {
 
         Customer(final long id, final int timeOfArrival, final int numItemsToPurchase,
                  final int checkoutDurationPerItemInSec, final int paymentDurationInSec) {
+            this(id, timeOfArrival, paymentDurationInSec + numItemsToPurchase * checkoutDurationPerItemInSec);
+        }
+
+        Customer(final long id, final int timeOfArrival, final int timeSpentAtCheckoutInSec) {
             this.id = id;
             this.timeOfArrival = timeOfArrival;
-            this.timeSpentAtCheckoutInSec = paymentDurationInSec + numItemsToPurchase * checkoutDurationPerItemInSec;
+            this.timeSpentAtCheckoutInSec = timeSpentAtCheckoutInSec;
         }
 
         /**
@@ -72,10 +133,350 @@ public class Checkout {
         }
     }
 
-    private static String printWaitingQueues(final List<Deque<Customer>> waitingQueues) {
+    /**
+     * A line of customers waiting for a checkout; customers join at the first end and
+     * the one waiting the longest leaves from the last end
+     */
+    private interface WaitingLine {
+        void addFirst(Customer customer);
+
+        Customer removeLast();
+
+        int size();
+
+        boolean isEmpty();
+    }
+
+    /**
+     * Waiting line keeping its customers on the heap
+     */
+    private static class HeapWaitingLine implements WaitingLine {
+        final ArrayDeque<Customer> customers = new ArrayDeque<>();
+
+        @Override
+        public void addFirst(final Customer customer) {
+            this.customers.addFirst(customer);
+        }
+
+        @Override
+        public Customer removeLast() {
+            return this.customers.removeLast();
+        }
+
+        @Override
+        public int size() {
+            return this.customers.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return this.customers.isEmpty();
+        }
+    }
+
+    /**
+     * Waiting line keeping its customers off-heap, as fixed size records in a ring of direct buffer
+     * segments; the heap only holds one small buffer object per segment, however long the line gets
+     */
+    private static class OffHeapWaitingLine implements WaitingLine {
+        static final int RECORD_BYTES = 16;         // id (8), time of arrival (4), time spent at checkout (4)
+        static final int SEGMENT_RECORDS = 1 << 14; // customers per segment
+
+        final ArrayDeque<ByteBuffer> segments = new ArrayDeque<>(); // segment of the longest waiting customer first
+        ByteBuffer spareSegment;                    // an emptied segment kept for reuse
+        int headIndex = 0;                          // record of the longest waiting customer in the first segment
+        int tailIndex = SEGMENT_RECORDS;            // next free record in the last segment
+        int size = 0;                               // number of customers in the line
+
+        @Override
+        public void addFirst(final Customer customer) {
+            if (this.tailIndex == SEGMENT_RECORDS) { // last segment is full
+                this.segments.addLast(newSegment());
+                this.tailIndex = 0;
+            }
+            final ByteBuffer segment = this.segments.peekLast();
+            final int offset = this.tailIndex * RECORD_BYTES;
+            segment.putLong(offset, customer.id);
+            segment.putInt(offset + 8, customer.timeOfArrival);
+            segment.putInt(offset + 12, customer.timeSpentAtCheckoutInSec);
+            ++this.tailIndex;
+            ++this.size;
+        }
+
+        @Override
+        public Customer removeLast() {
+            if (this.size == 0) {
+                throw new NoSuchElementException("Waiting line is empty.");
+            }
+            final ByteBuffer segment = this.segments.peekFirst();
+            final int offset = this.headIndex * RECORD_BYTES;
+            final Customer customer = new Customer(segment.getLong(offset),
+                    segment.getInt(offset + 8), segment.getInt(offset + 12));
+            --this.size;
+            if (++this.headIndex == SEGMENT_RECORDS || this.size == 0) { // first segment is used up
+                this.spareSegment = this.segments.pollFirst();
+                this.headIndex = 0;
+                if (this.size == 0) {
+                    this.tailIndex = SEGMENT_RECORDS;
+                }
+            }
+            return customer;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        private ByteBuffer newSegment() {
+            if (this.spareSegment != null) {
+                final ByteBuffer segment = this.spareSegment;
+                this.spareSegment = null;
+                return segment;
+            }
+            return ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * @return an empty waiting line, off-heap if useOffHeapWaitingLines is set
+     */
+    private static WaitingLine newWaitingLine() {
+        return useOffHeapWaitingLines ? new OffHeapWaitingLine() : new HeapWaitingLine();
+    }
+
+    /**
+     * Class tracking which checkout stations are busy, one bit per station
+     */
+    private static class StationOccupancy {
+        final long[] busyBits;                  // bit i is set while station i serves a customer
+        final int numStations;                  // number of checkout stations
+
+        StationOccupancy(final int numStations) {
+            this.busyBits = new long[(numStations + Long.SIZE - 1) / Long.SIZE];
+            this.numStations = numStations;
+        }
+
+        void occupy(final int station) {
+            this.busyBits[station >>> 6] |= 1L << station;
+        }
+
+        void free(final int station) {
+            this.busyBits[station >>> 6] &= ~(1L << station);
+        }
+
+        /**
+         * @param fromIndex    first station to consider
+         * @return the lowest index free station at or after fromIndex, -1 if there is none
+         */
+        int nextFree(final int fromIndex) {
+            int word = fromIndex >>> 6;
+            if (word >= this.busyBits.length) {
+                return -1;
+            }
+            long freeBits = ~this.busyBits[word] & (-1L << fromIndex);
+            while (freeBits == 0) {
+                if (++word == this.busyBits.length) {
+                    return -1;
+                }
+                freeBits = ~this.busyBits[word];
+            }
+            final int station = word * Long.SIZE + Long.numberOfTrailingZeros(freeBits);
+            return station < this.numStations ? station : -1;
+        }
+    }
+
+    /**
+     * Staffing policy: after each arrive and move event, decides from the number of customers waiting and
+     * of open checkouts whether to open or close one; must take constant time, it runs at every event
+     */
+    interface StaffingPolicy {
+        /**
+         * @param numCheckoutStations    number of checkouts the store has
+         * @return number of checkouts open at the start of the run
+         */
+        int initialOpenStations(int numCheckoutStations);
+
+        /**
+         * @param waiting                number of customers waiting in the lines
+         * @param openStations           number of checkouts open
+         * @param numCheckoutStations    number of checkouts the store has
+         * @return 1 to open a checkout, -1 to close one, 0 to leave them as they are
+         */
+        int decide(long waiting, int openStations, int numCheckoutStations);
+    }
+
+    /**
+     * Staffing policy keeping all checkouts open for the whole run
+     */
+    record FixedStaffing() implements StaffingPolicy {
+        @Override
+        public int initialOpenStations(final int numCheckoutStations) {
+            return numCheckoutStations;
+        }
+
+        @Override
+        public int decide(final long waiting, final int openStations, final int numCheckoutStations) {
+            return 0;
+        }
+    }
+
+    /**
+     * Staffing policy on the line lengths: opens a checkout when more than openAbove customers wait per
+     * open checkout, and closes one when fewer than closeBelow would wait per checkout with one less open
+     * Assuming:
+     * 1. closeBelow < openAbove; the gap between them (hysteresis) keeps a checkout that just opened
+     *    or closed from flipping back at the next event
+     *
+     * @param minOpen       number of checkouts open at the start, and never closed
+     * @param openAbove     customers waiting per open checkout above which one more opens
+     * @param closeBelow    customers waiting per open checkout below which one closes
+     */
+    record QueueLengthStaffing(int minOpen, double openAbove, double closeBelow) implements StaffingPolicy {
+        @Override
+        public int initialOpenStations(final int numCheckoutStations) {
+            return this.minOpen;
+        }
+
+        @Override
+        public int decide(final long waiting, final int openStations, final int numCheckoutStations) {
+            if (openStations < numCheckoutStations && waiting > this.openAbove * openStations) {
+                return 1;
+            }
+            if (openStations > this.minOpen && waiting < this.closeBelow * (openStations - 1)) {
+                return -1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Staffing policy on the predicted wait of the next customer to arrive, the customers waiting times the
+     * mean checkout time, spread over the open checkouts: opens a checkout when the prediction is over
+     * openAboveSec, and closes one when it would stay under closeBelowSec with one checkout less
+     * Assuming:
+     * 1. closeBelowSec < openAboveSec (hysteresis, as for QueueLengthStaffing)
+     *
+     * @param minOpen                  number of checkouts open at the start, and never closed
+     * @param meanCheckoutTimeInSec    mean time a customer spends at a checkout
+     * @param openAboveSec             predicted wait above which one more checkout opens
+     * @param closeBelowSec            predicted wait below which a checkout closes
+     */
+    record PredictedWaitStaffing(int minOpen, double meanCheckoutTimeInSec, double openAboveSec,
+                                 double closeBelowSec) implements StaffingPolicy {
+        @Override
+        public int initialOpenStations(final int numCheckoutStations) {
+            return this.minOpen;
+        }
+
+        @Override
+        public int decide(final long waiting, final int openStations, final int numCheckoutStations) {
+            final double work = waiting * this.meanCheckoutTimeInSec;  // seconds of checkout work waiting
+            if (openStations < numCheckoutStations && work > this.openAboveSec * openStations) {
+                return 1;
+            }
+            if (openStations > this.minOpen && work < this.closeBelowSec * (openStations - 1)) {
+                return -1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * @return the mean time a customer spends at a checkout, for the item counts the models draw
+     */
+    static double meanCheckoutTimeInSec(final int minNumItems, final int maxNumItems) {
+        final double items = minNumItems + (maxNumItems - minNumItems - 1) / 2.0;
+        final double itemSec = CHECKOUT_DURATION_PER_ITEM_SECOND_MIN
+                + (CHECKOUT_DURATION_PER_ITEM_SECOND_MAX - CHECKOUT_DURATION_PER_ITEM_SECOND_MIN - 1) / 2.0;
+        final double paySec = PAY_DURATION_SECOND_MIN + (PAY_DURATION_SECOND_MAX - PAY_DURATION_SECOND_MIN - 1) / 2.0;
+        return items * itemSec + paySec;
+    }
+
+    /**
+     * Class opening and closing checkout stations as the staffing policy decides
+     * Stations 0..openStations-1 are open. A closed station is marked busy in the occupancy, so no customer
+     * is sent to it; a station closing while it serves a customer finishes that customer first, and counts
+     * as open (staffed) in the stats until then.
+     */
+    private static class StaffingController {
+        final StaffingPolicy policy;
+        final StationOccupancy occupancy;
+        final List<Customer> stations;          // customer at each station, null if none
+        final TimeWeightedCount open;           // number of staffed stations, for the stats
+        final int numStations;                  // number of checkout stations
+        int openStations;                       // number of open stations
+
+        StaffingController(final StaffingPolicy policy, final StationOccupancy occupancy,
+                           final List<Customer> stations, final StoreCounts counts) {
+            this.policy = policy;
+            this.occupancy = occupancy;
+            this.stations = stations;
+            this.open = counts.open;
+            this.numStations = stations.size();
+            this.openStations = Math.max(1, Math.min(this.numStations, policy.initialOpenStations(this.numStations)));
+            this.open.add(0, this.openStations);
+            for (int i = this.openStations; i < this.numStations; ++i) {
+                occupancy.occupy(i);
+            }
+        }
+
+        /**
+         * Mark a station free once its customer left; a closed station stays marked busy, and is no longer staffed
+         *
+         * @param now        second of the event
+         * @param station    the station
+         */
+        void free(final int now, final int station) {
+            if (station < this.openStations) {
+                this.occupancy.free(station);
+            } else {
+                this.open.add(now, -1);
+            }
+        }
+
+        /**
+         * Let the policy decide on the current number of customers waiting; constant time
+         *
+         * @param now        second of the event
+         * @param waiting    number of customers waiting in the lines
+         * @return the station that closed, its line is to be rebalanced onto the open ones; -1 if none closed
+         */
+        int update(final int now, final long waiting) {
+            final int decision = this.policy.decide(waiting, this.openStations, this.numStations);
+            if (decision > 0 && this.openStations < this.numStations) {
+                final int station = this.openStations++;
+                if (this.stations.get(station) == null) {
+                    this.occupancy.free(station);
+                    this.open.add(now, 1);
+                } // else it is still staffed, finishing the customer it had when it closed
+                if (ENABLE_DEBUG_LOGGING) {
+                    System.out.println("[Staffing Event] " + now + ": checkout " + station + " opens");
+                }
+            } else if (decision < 0 && this.openStations > 1) {
+                final int station = --this.openStations;
+                if (this.stations.get(station) == null) {
+                    this.occupancy.occupy(station);
+                    this.open.add(now, -1);
+                } // else it stays staffed until its customer leaves
+                if (ENABLE_DEBUG_LOGGING) {
+                    System.out.println("[Staffing Event] " + now + ": checkout " + station + " closes");
+                }
+                return station;
+            }
+            return -1;
+        }
+    }
+
+    private static String printWaitingQueues(final List<WaitingLine> waitingQueues) {
         final StringBuilder sb = new StringBuilder().append("=[");
         boolean isFirst = true;
-        for (final Queue<Customer> queue : waitingQueues) {
+        for (final WaitingLine queue : waitingQueues) {
             if (isFirst) {
                 isFirst = false;
             } else {
@@ -101,6 +502,82 @@ public class Checkout {
 
     }
 
+    /**
+     * Busy stations ordered by completion time, so each second only looks at the stations
+     * that actually finish instead of scanning all of them
+     *
+     * @param checkoutCompletionTime    customer checkout completion time per station
+     * @return an empty heap of station indices; lower index first when several finish together
+     */
+    private static PriorityQueue<Integer> newCompletionHeap(final ArrayList<Integer> checkoutCompletionTime) {
+        return new PriorityQueue<>(Math.max(1, checkoutCompletionTime.size()),
+                Comparator.<Integer>comparingInt(checkoutCompletionTime::get).thenComparingInt(i -> i));
+    }
+
+    /**
+     * @param waitingQueues    waiting queue of each station
+     * @param openStations     number of open stations, the queues after them are not considered
+     * @return the smallest queue; the lower index one if several are of smallest size
+     */
+    private static int smallestQueue(final List<WaitingLine> waitingQueues, final int openStations) {
+        int smallestQueue = 0;
+        for (int j = 1; j < openStations; ++j) {
+            if (waitingQueues.get(smallestQueue).size() > waitingQueues.get(j).size()) {
+                smallestQueue = j;
+            }
+        }
+        return smallestQueue;
+    }
+
+    /**
+     * Rebalance the queue of a checkout that closed: its customers, longest waiting first, join the
+     * smallest open queue, as if they arrived now (keeping their time of arrival)
+     *
+     * @param waitingQueues    waiting queue of each station
+     * @param closedStation    the station that closed, -1 if none did
+     * @param openStations     number of open stations
+     */
+    private static void rebalanceToSmallestQueues(final List<WaitingLine> waitingQueues, final int closedStation,
+                                                  final int openStations) {
+        if (closedStation < 0) {
+            return;
+        }
+        final WaitingLine closedQueue = waitingQueues.get(closedStation);
+        while (!closedQueue.isEmpty()) {
+            waitingQueues.get(smallestQueue(waitingQueues, openStations)).addFirst(closedQueue.removeLast());
+        }
+    }
+
+    /**
+     * Rebalance the queue of a checkout that closed: its customers, longest waiting first, join a random
+     * open queue, as if they arrived now (keeping their time of arrival)
+     *
+     * @param waitingQueues    waiting queue of each station
+     * @param closedStation    the station that closed, -1 if none did
+     * @param openStations     number of open stations
+     */
+    private static void rebalanceToRandomQueues(final List<WaitingLine> waitingQueues, final int closedStation,
+                                                final int openStations) {
+        if (closedStation < 0) {
+            return;
+        }
+        final WaitingLine closedQueue = waitingQueues.get(closedStation);
+        while (!closedQueue.isEmpty()) {
+            waitingQueues.get(RAND.nextInt(openStations)).addFirst(closedQueue.removeLast());
+        }
+    }
+
+    /**
+     * {@link #model1QueueNCheckout} with all checkouts open for the whole run
+     */
+    static ModelStats model1QueueNCheckout(final int runTime, final double[] customersPerHour,
+                                           final int numCheckoutStations,
+                                           final int minNumItems, final int maxNumItems,
+                                           final boolean detectSteadyState) {
+        return model1QueueNCheckout(runTime, customersPerHour, numCheckoutStations, minNumItems, maxNumItems,
+                detectSteadyState, new FixedStaffing());
+    }
+
     /**
      * Model 1
      * customer waiting queue, N checkout
@@ -108,19 +585,23 @@ public class Checkout {
      * 1. if one+ checkout stations are free, a customer always choose the station with the lower index
      *
      * @param runTime                          runtime of the simulation in sec
-     * @param customerInterArrivalTimeInSec    inter arrival time of customers (avg)
+     * @param customersPerHour                 customer arrival rate for each hour of the run
      * @param numCheckoutStations              number of checkout kiosks
      * @param minNumItems                      minimum number of items to check out
      * @param maxNumItems                      maximum number of items to check out
+     * @param staffingPolicy                   policy opening and closing checkouts during the run
+     * @return the stats of the run
      */
-    private static void model1QueueNCheckout(final int runTime, final int customerInterArrivalTimeInSec,
-                                             final int numCheckoutStations,
-                                             final int minNumItems, final int maxNumItems) {
+    static ModelStats model1QueueNCheckout(final int runTime, final double[] customersPerHour,
+                                           final int numCheckoutStations,
+                                           final int minNumItems, final int maxNumItems,
+                                           final boolean detectSteadyState,
+                                           final StaffingPolicy staffingPolicy) {
         // ----------------------------- model variables -----------------------------
-        // chance of a customer arrival in a given second
-        final double customerArrivalChance = 1.0 / customerInterArrivalTimeInSec;
+        // generates the customer arrival times
+        final ArrivalProcess arrivals = new ArrivalProcess(customersPerHour, RAND);
         // customer waits in this queue
-        final Deque<Customer> waitingQueue = new LinkedList<>();
+        final WaitingLine waitingQueue = newWaitingLine();
         // represents checkout stations (the customer there)
         final ArrayList<Customer> stations = new ArrayList<>(numCheckoutStations);
         // customer checkout start/completion time; a null value means free
@@ -129,60 +610,65 @@ public class Checkout {
             stations.add(null);             // no customer at checkout
             checkoutCompletionTime.add(null);
         }
+        // busy stations, soonest completion first
+        final PriorityQueue<Integer> checkoutCompletions = newCompletionHeap(checkoutCompletionTime);
+        // which stations are busy, for constant time free station lookup
+        final StationOccupancy occupancy = new StationOccupancy(numCheckoutStations);
 
         // ----------------------------- stats variables -----------------------------
-        long customerCount = 0;                  // count number customers arrived to the store
-        long customerMovedToCheckoutCont = 0;    // count number of customers moved to checkout after waiting in the queue
-        long customerMovingOutCount = 0;         // count number of customers leaving the store
-        long maxCustomerWaitingCount = 0;        // tracks max number of customers waiting in the waiting queue
-        long maxCustomerInStoreCount = 0;        // tracks max number of customers in the store
-        long weightedCustomersInQueue = 0;       // sum up number of customers waiting in the queue each sec
-        long weightedCustomersInStore = 0;       // sum up number of customers waiting in the store each sec
-        long weightedCheckoutBusyTime = 0;       // sum up number of busy stations each sec
-        long weightedWaitingTime = 0;            // sum up the time spent in the waiting queue by all customers
-        long weightedTimeInStore = 0;            // sum up the time spent in the store by all customers
+        long lastCustomerId = 0;                 // id of the latest customer to arrive
+        // collects the stats in batches, to find and drop the warm-up
+        final SteadyStateDetector steadyState = new SteadyStateDetector("Model 1", detectSteadyState);
+        // opens and closes checkouts during the run
+        final StaffingController staffing = new StaffingController(staffingPolicy, occupancy, stations,
+                steadyState.counts);
 
         // ----------------------------- run model -----------------------------
-        for (int now = 0; now < runTime; ++now) {
-            // ========== let a customer arrive ==========
-            if (RAND.nextDouble() < customerArrivalChance) {
-                ++customerCount;
+        for (int now = 0; now < runTime && !steadyState.converged; ++now) {
+            final ModelStats stats = steadyState.currentBatch;
+
+            // ========== let the customers arrive ==========
+            final ArrivePhaseEvent arrivePhase = new ArrivePhaseEvent();
+            arrivePhase.begin();
+            while (arrivals.getNextArrivalSecond() <= now) {
+                arrivals.advance();
+                ++stats.customerCount;
 
                 // create the customer
-                final Customer newCustomer = new Customer(customerCount, now,
+                final Customer newCustomer = new Customer(++lastCustomerId, now,
                         minNumItems + RAND.nextInt(maxNumItems - minNumItems),
                         CHECKOUT_DURATION_PER_ITEM_SECOND_MIN + RAND.nextInt(CHECKOUT_DURATION_PER_ITEM_SECOND_MAX - CHECKOUT_DURATION_PER_ITEM_SECOND_MIN),
                         PAY_DURATION_SECOND_MIN + RAND.nextInt(PAY_DURATION_SECOND_MAX - PAY_DURATION_SECOND_MIN));
 
                 waitingQueue.addFirst(newCustomer); // add the customer to the queue
+                steadyState.counts.arrive(now);
+                staffing.update(now, steadyState.counts.waiting.value);
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Arrive Event] " + now + ":"
                             + " customer " + newCustomer.id + " arrived");
                 }
             }
+            arrivePhase.commitPhase(steadyState.modelName, now);
 
             // ========== let the customers (who are done) leave first and free up the checkout ==========
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                final Integer completionTime = checkoutCompletionTime.get(i);
-                if (completionTime == null) {
-                    continue; // station is free
-                }
-
-                if (completionTime != now) { // this customer at the station not leave now
-                    continue;
-                }
-
+            final LeavePhaseEvent leavePhase = new LeavePhaseEvent();
+            leavePhase.begin();
+            while (!checkoutCompletions.isEmpty()
+                    && checkoutCompletionTime.get(checkoutCompletions.peek()) <= now) {
+                final int i = checkoutCompletions.poll();
                 final Customer leavingCustomer = stations.get(i);
 
                 // collect event specific stats
                 final int waitTimeInStore = now - leavingCustomer.timeOfArrival;
-                weightedTimeInStore += waitTimeInStore;
-                ++customerMovingOutCount;
+                stats.weightedTimeInStore += waitTimeInStore;
+                ++stats.customerMovingOutCount;
 
                 // set the values noting that the station is free
                 stations.set(i, null);
                 checkoutCompletionTime.set(i, null);
+                staffing.free(now, i);
+                steadyState.counts.leave(now);
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Leave Event] " + now + ":"
@@ -191,23 +677,25 @@ public class Checkout {
                             + ", total store time " + waitTimeInStore);
                 }
             }
+            leavePhase.commitPhase(steadyState.modelName, now);
 
             // ========== let a customer move from the waiting queue to the checkout station ==========
-            for (int i = 0; i < checkoutCompletionTime.size() && !waitingQueue.isEmpty(); ++i) {
-                final Integer completionTime = checkoutCompletionTime.get(i);
-                if (completionTime != null) {
-                    continue; // station in occupied
-                }
-
+            final MovePhaseEvent movePhase = new MovePhaseEvent();
+            movePhase.begin();
+            for (int i = occupancy.nextFree(0); i >= 0 && !waitingQueue.isEmpty(); i = occupancy.nextFree(i + 1)) {
                 final Customer movingCustomer = waitingQueue.removeLast(); // get the customer waiting the longest
 
                 // make the station busy with checkout completion time
                 stations.set(i, movingCustomer);
                 checkoutCompletionTime.set(i, movingCustomer.computeTimeSpentAtCheckInSecond() + now);
+                checkoutCompletions.add(i);
+                occupancy.occupy(i);
+                steadyState.counts.move(now);
+                staffing.update(now, steadyState.counts.waiting.value);
 
-                ++customerMovedToCheckoutCont;
+                ++stats.customerMovedToCheckoutCont;
                 final int waitTimeInQueue = now - movingCustomer.timeOfArrival;
-                weightedWaitingTime += waitTimeInQueue;
+                stats.weightedWaitingTime += waitTimeInQueue;
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Move Event] " + now + ":"
@@ -216,29 +704,20 @@ public class Checkout {
                             + ", waiting time " + waitTimeInQueue);
                 }
             }
+            movePhase.commitPhase(steadyState.modelName, now);
 
             // ========== collect reporting data ==========
-            final int currentWaitingQueueSize = waitingQueue.size();
-            weightedCustomersInQueue += currentWaitingQueueSize;
-            maxCustomerWaitingCount = Math.max(maxCustomerWaitingCount, currentWaitingQueueSize);
-
-            // compute busy checkout count
-            int busyCheckout = 0;
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                if (checkoutCompletionTime.get(i) != null) {
-                    ++busyCheckout;
-                }
-            }
-            weightedCustomersInStore += busyCheckout + currentWaitingQueueSize;
-            weightedCheckoutBusyTime += busyCheckout;
-            maxCustomerInStoreCount = Math.max(maxCustomerInStoreCount, busyCheckout + currentWaitingQueueSize);
-
+            final CollectPhaseEvent collectPhase = new CollectPhaseEvent();
+            collectPhase.begin();
             // log summery if verbose logging or state change logging is enabled
             if (ENABLE_DEBUG_LOGGING) {
                 System.out.println("[Summery] " + now + ":"
                         + " queue size " + printWaitingQueues(List.of(waitingQueue))
                         + ", checkout " + printStations(checkoutCompletionTime, now));
             }
+
+            steadyState.endSecond();
+            collectPhase.commitPhase(steadyState.modelName, now);
         }
 
         // ----------------------------- model reporting -----------------------------
@@ -246,20 +725,18 @@ public class Checkout {
             System.out.println();
         }
 
-        System.out.printf("Customer arrived: %.2f/hr\n", (3600.0 * customerCount / runTime));
-        System.out.printf("Customer left: %.2f/hr\n", (3600.0 * customerMovingOutCount / runTime));
-        System.out.printf("Customer moved to checkout: %.2f/hr\n", (3600.0 * customerMovedToCheckoutCont / runTime));
-
-        System.out.printf("Avg customers in the queue: %.2f\n", (1.0 * weightedCustomersInQueue / runTime));
-        System.out.printf("Avg customers in the store: %.2f\n", (1.0 * weightedCustomersInStore / runTime));
-        System.out.printf("Wait time in queue: %.2f sec\n", (1.0 * weightedWaitingTime / customerMovedToCheckoutCont));
-        System.out.printf("Wait time in store: %.2f sec\n", (1.0 * weightedTimeInStore / customerMovingOutCount));
-
-        System.out.printf("Checkout was busy: %.2f%% of the time\n", (100.0 * weightedCheckoutBusyTime / runTime) / numCheckoutStations);
+        return steadyState.steadyStateStats();
+    }
 
-        System.out.printf("Max number of customers in the queue: %d\n", maxCustomerWaitingCount);
-        System.out.printf("Max number of customers in the store: %d\n", maxCustomerInStoreCount);
-        System.out.println();
+    /**
+     * {@link #modelNQueuePickSmallestNCheckout} with all checkouts open for the whole run
+     */
+    static ModelStats modelNQueuePickSmallestNCheckout(final int runTime, final double[] customersPerHour,
+                                                       final int numCheckoutStations,
+                                                       final int minNumItems, final int maxNumItems,
+                                                       final boolean detectSteadyState) {
+        return modelNQueuePickSmallestNCheckout(runTime, customersPerHour, numCheckoutStations, minNumItems, maxNumItems,
+                detectSteadyState, new FixedStaffing());
     }
 
     /**
@@ -269,90 +746,95 @@ public class Checkout {
      * 1. if one+ queue are of smallest size, a customer always choose the queue with the lower index
      *
      * @param runTime                          runtime of the simulation in sec
-     * @param customerInterArrivalTimeInSec    inter arrival time of customers (avg)
+     * @param customersPerHour                 customer arrival rate for each hour of the run
      * @param numCheckoutStations              number of checkout kiosks/queues
      * @param minNumItems                      minimum number of items to check out
      * @param maxNumItems                      maximum number of items to check out
+     * @param staffingPolicy                   policy opening and closing checkouts during the run
+     * @return the stats of the run
      */
-    private static void modelNQueuePickSmallestNCheckout(final int runTime, final int customerInterArrivalTimeInSec,
-                                                         final int numCheckoutStations,
-                                                         final int minNumItems, final int maxNumItems) {
+    static ModelStats modelNQueuePickSmallestNCheckout(final int runTime, final double[] customersPerHour,
+                                                       final int numCheckoutStations,
+                                                       final int minNumItems, final int maxNumItems,
+                                                       final boolean detectSteadyState,
+                                                       final StaffingPolicy staffingPolicy) {
         // ----------------------------- model variables -----------------------------
-        // chance of a customer arrival in a given second
-        final double customerArrivalChance = 1.0 / customerInterArrivalTimeInSec;
+        // generates the customer arrival times
+        final ArrivalProcess arrivals = new ArrivalProcess(customersPerHour, RAND);
         // customer waits in these queues
-        final ArrayList<Deque<Customer>> waitingQueues = new ArrayList<>(numCheckoutStations);
+        final ArrayList<WaitingLine> waitingQueues = new ArrayList<>(numCheckoutStations);
         // represents checkout stations (the customer there)
         final ArrayList<Customer> stations = new ArrayList<>(numCheckoutStations);
         // customer checkout start/completion time; a null value means free
         final ArrayList<Integer> checkoutCompletionTime = new ArrayList<>(numCheckoutStations);
         for (int i = 0; i < numCheckoutStations; ++i) {
-            waitingQueues.add(new LinkedList<>());
+            waitingQueues.add(newWaitingLine());
             stations.add(null);             // no customer at checkout
             checkoutCompletionTime.add(null);
         }
+        // busy stations, soonest completion first
+        final PriorityQueue<Integer> checkoutCompletions = newCompletionHeap(checkoutCompletionTime);
+        // which stations are busy, for constant time free station lookup
+        final StationOccupancy occupancy = new StationOccupancy(numCheckoutStations);
 
         // ----------------------------- stats variables -----------------------------
-        long customerCount = 0;                  // count number customers arrived to the store
-        long customerMovedToCheckoutCont = 0;    // count number of customers moved to checkout after waiting in the queue
-        long customerMovingOutCount = 0;         // count number of customers leaving the store
-        long maxCustomerWaitingCount = 0;        // tracks max number of customers waiting in the waiting queue
-        long maxCustomerInStoreCount = 0;        // tracks max number of customers in the store
-        long weightedCustomersInQueue = 0;       // sum up number of customers waiting in the queue each sec
-        long weightedCustomersInStore = 0;       // sum up number of customers waiting in the store each sec
-        long weightedCheckoutBusyTime = 0;       // sum up number of busy stations each sec
-        long weightedWaitingTime = 0;            // sum up the time spent in the waiting queue by all customers
-        long weightedTimeInStore = 0;            // sum up the time spent in the store by all customers
+        long lastCustomerId = 0;                 // id of the latest customer to arrive
+        // collects the stats in batches, to find and drop the warm-up
+        final SteadyStateDetector steadyState = new SteadyStateDetector("Model 2", detectSteadyState);
+        // opens and closes checkouts during the run
+        final StaffingController staffing = new StaffingController(staffingPolicy, occupancy, stations,
+                steadyState.counts);
 
         // ----------------------------- run model -----------------------------
-        for (int now = 0; now < runTime; ++now) {
-            // ========== let a customer arrive ==========
-            if (RAND.nextDouble() < customerArrivalChance) {
-                ++customerCount;
+        for (int now = 0; now < runTime && !steadyState.converged; ++now) {
+            final ModelStats stats = steadyState.currentBatch;
+
+            // ========== let the customers arrive ==========
+            final ArrivePhaseEvent arrivePhase = new ArrivePhaseEvent();
+            arrivePhase.begin();
+            while (arrivals.getNextArrivalSecond() <= now) {
+                arrivals.advance();
+                ++stats.customerCount;
 
                 // create the customer
-                final Customer newCustomer = new Customer(customerCount, now,
+                final Customer newCustomer = new Customer(++lastCustomerId, now,
                         minNumItems + RAND.nextInt(maxNumItems - minNumItems),
                         CHECKOUT_DURATION_PER_ITEM_SECOND_MIN + RAND.nextInt(CHECKOUT_DURATION_PER_ITEM_SECOND_MAX - CHECKOUT_DURATION_PER_ITEM_SECOND_MIN),
                         PAY_DURATION_SECOND_MIN + RAND.nextInt(PAY_DURATION_SECOND_MAX - PAY_DURATION_SECOND_MIN));
 
-                // find the smallest queue
-                int smallestQueue = 0;
-                for (int j = 1; j < numCheckoutStations; ++j) {
-                    if (waitingQueues.get(smallestQueue).size() > waitingQueues.get(j).size()) {
-                        smallestQueue = j;
-                    }
-                }
+                // find the smallest open queue
+                final int smallestQueue = smallestQueue(waitingQueues, staffing.openStations);
 
                 waitingQueues.get(smallestQueue).addFirst(newCustomer); // add the customer to the queue
+                steadyState.counts.arrive(now);
+                rebalanceToSmallestQueues(waitingQueues, staffing.update(now, steadyState.counts.waiting.value),
+                        staffing.openStations);
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Arrive Event] " + now + ":"
                             + " customer " + newCustomer.id + " arrived at queue " + smallestQueue);
                 }
             }
+            arrivePhase.commitPhase(steadyState.modelName, now);
 
             // ========== let the customers (who are done) leave first and free up the checkout ==========
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                final Integer completionTime = checkoutCompletionTime.get(i);
-                if (completionTime == null) {
-                    continue; // station is free
-                }
-
-                if (completionTime != now) { // this customer at the station not leave now
-                    continue;
-                }
-
+            final LeavePhaseEvent leavePhase = new LeavePhaseEvent();
+            leavePhase.begin();
+            while (!checkoutCompletions.isEmpty()
+                    && checkoutCompletionTime.get(checkoutCompletions.peek()) <= now) {
+                final int i = checkoutCompletions.poll();
                 final Customer leavingCustomer = stations.get(i);
 
                 // collect event specific stats
                 final int waitTimeInStore = now - leavingCustomer.timeOfArrival;
-                weightedTimeInStore += waitTimeInStore;
-                ++customerMovingOutCount;
+                stats.weightedTimeInStore += waitTimeInStore;
+                ++stats.customerMovingOutCount;
 
                 // set the values noting that the station is free
                 stations.set(i, null);
                 checkoutCompletionTime.set(i, null);
+                staffing.free(now, i);
+                steadyState.counts.leave(now);
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Leave Event] " + now + ":"
@@ -361,13 +843,12 @@ public class Checkout {
                             + ", total store time " + waitTimeInStore);
                 }
             }
+            leavePhase.commitPhase(steadyState.modelName, now);
 
             // ========== let a customer move from the waiting queue to the checkout station ==========
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                final Integer completionTime = checkoutCompletionTime.get(i);
-                if (completionTime != null) {
-                    continue; // station in occupied
-                }
+            final MovePhaseEvent movePhase = new MovePhaseEvent();
+            movePhase.begin();
+            for (int i = occupancy.nextFree(0); i >= 0; i = occupancy.nextFree(i + 1)) {
                 if (waitingQueues.get(i).isEmpty()) {
                     continue; // queue is empty none can be moved to checkout
                 }
@@ -377,10 +858,15 @@ public class Checkout {
                 // make the station busy with checkout completion time
                 stations.set(i, movingCustomer);
                 checkoutCompletionTime.set(i, movingCustomer.computeTimeSpentAtCheckInSecond() + now);
+                checkoutCompletions.add(i);
+                occupancy.occupy(i);
+                steadyState.counts.move(now);
+                rebalanceToSmallestQueues(waitingQueues, staffing.update(now, steadyState.counts.waiting.value),
+                        staffing.openStations);
 
-                ++customerMovedToCheckoutCont;
+                ++stats.customerMovedToCheckoutCont;
                 final int waitTimeInQueue = now - movingCustomer.timeOfArrival;
-                weightedWaitingTime += waitTimeInQueue;
+                stats.weightedWaitingTime += waitTimeInQueue;
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Move Event] " + now + ":"
@@ -389,33 +875,20 @@ public class Checkout {
                             + ", waiting time " + waitTimeInQueue);
                 }
             }
+            movePhase.commitPhase(steadyState.modelName, now);
 
             // ========== collect reporting data ==========
-            // compute waiting queue size
-            int currentWaitingQueueSize = 0;
-            for (final Deque<Customer> waitingQueue : waitingQueues) {
-                currentWaitingQueueSize += waitingQueue.size();
-            }
-            weightedCustomersInQueue += currentWaitingQueueSize;
-            maxCustomerWaitingCount = Math.max(maxCustomerWaitingCount, currentWaitingQueueSize);
-
-            // compute busy checkout count
-            int busyCheckout = 0;
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                if (checkoutCompletionTime.get(i) != null) {
-                    ++busyCheckout;
-                }
-            }
-            weightedCustomersInStore += busyCheckout + currentWaitingQueueSize;
-            weightedCheckoutBusyTime += busyCheckout;
-            maxCustomerInStoreCount = Math.max(maxCustomerInStoreCount, busyCheckout + currentWaitingQueueSize);
-
+            final CollectPhaseEvent collectPhase = new CollectPhaseEvent();
+            collectPhase.begin();
             // log summery if verbose logging or state change logging is enabled
             if (ENABLE_DEBUG_LOGGING) {
                 System.out.println("[Summery] " + now + ":"
                         + " queue size " + printWaitingQueues(waitingQueues)
                         + ", checkout " + printStations(checkoutCompletionTime, now));
             }
+
+            steadyState.endSecond();
+            collectPhase.commitPhase(steadyState.modelName, now);
         }
 
         // ----------------------------- model reporting -----------------------------
@@ -423,20 +896,19 @@ public class Checkout {
             System.out.println();
         }
 
-        System.out.printf("Customer arrived: %.2f/hr\n", (3600.0 * customerCount / runTime));
-        System.out.printf("Customer left: %.2f/hr\n", (3600.0 * customerMovingOutCount / runTime));
-        System.out.printf("Customer moved to checkout: %.2f/hr\n", (3600.0 * customerMovedToCheckoutCont / runTime));
-
-        System.out.printf("Avg customers in the queue: %.2f\n", (1.0 * weightedCustomersInQueue / runTime));
-        System.out.printf("Avg customers in the store: %.2f\n", (1.0 * weightedCustomersInStore / runTime));
-        System.out.printf("Wait time in queue: %.2f sec\n", (1.0 * weightedWaitingTime / customerMovedToCheckoutCont));
-        System.out.printf("Wait time in store: %.2f sec\n", (1.0 * weightedTimeInStore / customerMovingOutCount));
-
-        System.out.printf("Checkout was busy: %.2f%% of the time\n", (100.0 * weightedCheckoutBusyTime / runTime) / numCheckoutStations);
+        return steadyState.steadyStateStats();
+    }
 
-        System.out.printf("Max number of customers in the queue: %d\n", maxCustomerWaitingCount);
-        System.out.printf("Max number of customers in the store: %d\n", maxCustomerInStoreCount);
-        System.out.println();
+    /**
+     * {@link #modelNQueuePickRandomtNCheckout} with all checkouts open for the whole run
+     */
+    static ModelStats modelNQueuePickRandomtNCheckout(final int runTime,
+                                                      final double[] customersPerHour,
+                                                      final int numCheckoutStations,
+                                                      final int minNumItems, final int maxNumItems,
+                                                      final boolean detectSteadyState) {
+        return modelNQueuePickRandomtNCheckout(runTime, customersPerHour, numCheckoutStations, minNumItems, maxNumItems,
+                detectSteadyState, new FixedStaffing());
     }
 
     /**
@@ -444,86 +916,96 @@ public class Checkout {
      * Model N customer waiting queue, N checkout; where a customer chooses a random queue
      *
      * @param runTime                          runtime of the simulation in sec
-     * @param customerInterArrivalTimeInSec    inter arrival time of customers (avg)
+     * @param customersPerHour                 customer arrival rate for each hour of the run
      * @param numCheckoutStations              number of checkout kiosks/queues
      * @param minNumItems                      minimum number of items to check out
      * @param maxNumItems                      maximum number of items to check out
+     * @param staffingPolicy                   policy opening and closing checkouts during the run
+     * @return the stats of the run
      */
-    private static void modelNQueuePickRandomtNCheckout(final int runTime,
-                                                        final int customerInterArrivalTimeInSec,
-                                                        final int numCheckoutStations,
-                                                        final int minNumItems, final int maxNumItems) {
+    static ModelStats modelNQueuePickRandomtNCheckout(final int runTime,
+                                                      final double[] customersPerHour,
+                                                      final int numCheckoutStations,
+                                                      final int minNumItems, final int maxNumItems,
+                                                      final boolean detectSteadyState,
+                                                      final StaffingPolicy staffingPolicy) {
         // ----------------------------- model variables -----------------------------
-        // chance of a customer arrival in a given second
-        final double customerArrivalChance = 1.0 / customerInterArrivalTimeInSec;
+        // generates the customer arrival times
+        final ArrivalProcess arrivals = new ArrivalProcess(customersPerHour, RAND);
         // customer waits in these queues
-        final ArrayList<Deque<Customer>> waitingQueues = new ArrayList<>();
+        final ArrayList<WaitingLine> waitingQueues = new ArrayList<>();
         // represents checkout stations (the customer there)
         final ArrayList<Customer> stations = new ArrayList<>(numCheckoutStations);
         // customer checkout start/completion time; a null value means free
         final ArrayList<Integer> checkoutCompletionTime = new ArrayList<>(numCheckoutStations);
         for (int i = 0; i < numCheckoutStations; ++i) {
-            waitingQueues.add(new LinkedList<>());
+            waitingQueues.add(newWaitingLine());
             stations.add(null);             // no customer at checkout
             checkoutCompletionTime.add(null);
         }
+        // busy stations, soonest completion first
+        final PriorityQueue<Integer> checkoutCompletions = newCompletionHeap(checkoutCompletionTime);
+        // which stations are busy, for constant time free station lookup
+        final StationOccupancy occupancy = new StationOccupancy(numCheckoutStations);
 
         // ----------------------------- stats variables -----------------------------
-        long customerCount = 0;                  // count number customers arrived to the store
-        long customerMovedToCheckoutCont = 0;    // count number of customers moved to checkout after waiting in the queue
-        long customerMovingOutCount = 0;         // count number of customers leaving the store
-        long maxCustomerWaitingCount = 0;        // tracks max number of customers waiting in the waiting queue
-        long maxCustomerInStoreCount = 0;        // tracks max number of customers in the store
-        long weightedCustomersInQueue = 0;       // sum up number of customers waiting in the queue each sec
-        long weightedCustomersInStore = 0;       // sum up number of customers waiting in the store each sec
-        long weightedCheckoutBusyTime = 0;       // sum up number of busy stations each sec
-        long weightedWaitingTime = 0;            // sum up the time spent in the waiting queue by all customers
-        long weightedTimeInStore = 0;            // sum up the time spent in the store by all customers
+        long lastCustomerId = 0;                 // id of the latest customer to arrive
+        // collects the stats in batches, to find and drop the warm-up
+        final SteadyStateDetector steadyState = new SteadyStateDetector("Model 3", detectSteadyState);
+        // opens and closes checkouts during the run
+        final StaffingController staffing = new StaffingController(staffingPolicy, occupancy, stations,
+                steadyState.counts);
 
         // ----------------------------- run model -----------------------------
-        for (int now = 0; now < runTime; ++now) {
-            // ========== let a customer arrive ==========
-            if (RAND.nextDouble() < customerArrivalChance) {
-                ++customerCount;
+        for (int now = 0; now < runTime && !steadyState.converged; ++now) {
+            final ModelStats stats = steadyState.currentBatch;
+
+            // ========== let the customers arrive ==========
+            final ArrivePhaseEvent arrivePhase = new ArrivePhaseEvent();
+            arrivePhase.begin();
+            while (arrivals.getNextArrivalSecond() <= now) {
+                arrivals.advance();
+                ++stats.customerCount;
 
                 // create the customer
-                final Customer newCustomer = new Customer(customerCount, now,
+                final Customer newCustomer = new Customer(++lastCustomerId, now,
                         minNumItems + RAND.nextInt(maxNumItems - minNumItems),
                         CHECKOUT_DURATION_PER_ITEM_SECOND_MIN + RAND.nextInt(CHECKOUT_DURATION_PER_ITEM_SECOND_MAX - CHECKOUT_DURATION_PER_ITEM_SECOND_MIN),
                         PAY_DURATION_SECOND_MIN + RAND.nextInt(PAY_DURATION_SECOND_MAX - PAY_DURATION_SECOND_MIN));
 
-                // find a random queue
-                final int randomQueue = RAND.nextInt(numCheckoutStations);
+                // find a random open queue
+                final int randomQueue = RAND.nextInt(staffing.openStations);
 
                 waitingQueues.get(randomQueue).addFirst(newCustomer); // add the customer to the queue
+                steadyState.counts.arrive(now);
+                rebalanceToRandomQueues(waitingQueues, staffing.update(now, steadyState.counts.waiting.value),
+                        staffing.openStations);
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Arrive Event] " + now + ":"
                             + " customer " + newCustomer.id + " arrived at queue " + randomQueue);
                 }
             }
+            arrivePhase.commitPhase(steadyState.modelName, now);
 
             // ========== let the customers (who are done) leave first and free up the checkout ==========
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                final Integer completionTime = checkoutCompletionTime.get(i);
-                if (completionTime == null) {
-                    continue; // station is free
-                }
-
-                if (completionTime != now) { // this customer at the station not leave now
-                    continue;
-                }
-
+            final LeavePhaseEvent leavePhase = new LeavePhaseEvent();
+            leavePhase.begin();
+            while (!checkoutCompletions.isEmpty()
+                    && checkoutCompletionTime.get(checkoutCompletions.peek()) <= now) {
+                final int i = checkoutCompletions.poll();
                 final Customer leavingCustomer = stations.get(i);
 
                 // collect event specific stats
                 final int waitTimeInStore = now - leavingCustomer.timeOfArrival;
-                weightedTimeInStore += waitTimeInStore;
-                ++customerMovingOutCount;
+                stats.weightedTimeInStore += waitTimeInStore;
+                ++stats.customerMovingOutCount;
 
                 // set the values noting that the station is free
                 stations.set(i, null);
                 checkoutCompletionTime.set(i, null);
+                staffing.free(now, i);
+                steadyState.counts.leave(now);
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Leave Event] " + now + ":"
@@ -532,13 +1014,12 @@ public class Checkout {
                             + ", total store time " + waitTimeInStore);
                 }
             }
+            leavePhase.commitPhase(steadyState.modelName, now);
 
             // ========== let a customer move from the waiting queue to the checkout station ==========
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                final Integer completionTime = checkoutCompletionTime.get(i);
-                if (completionTime != null) {
-                    continue; // station in occupied
-                }
+            final MovePhaseEvent movePhase = new MovePhaseEvent();
+            movePhase.begin();
+            for (int i = occupancy.nextFree(0); i >= 0; i = occupancy.nextFree(i + 1)) {
                 if (waitingQueues.get(i).isEmpty()) {
                     continue; // queue is empty none can be moved to checkout
                 }
@@ -548,10 +1029,15 @@ public class Checkout {
                 // make the station busy with checkout completion time
                 stations.set(i, movingCustomer);
                 checkoutCompletionTime.set(i, movingCustomer.computeTimeSpentAtCheckInSecond() + now);
+                checkoutCompletions.add(i);
+                occupancy.occupy(i);
+                steadyState.counts.move(now);
+                rebalanceToRandomQueues(waitingQueues, staffing.update(now, steadyState.counts.waiting.value),
+                        staffing.openStations);
 
-                ++customerMovedToCheckoutCont;
+                ++stats.customerMovedToCheckoutCont;
                 final int waitTimeInQueue = now - movingCustomer.timeOfArrival;
-                weightedWaitingTime += waitTimeInQueue;
+                stats.weightedWaitingTime += waitTimeInQueue;
 
                 if (ENABLE_DEBUG_LOGGING) {
                     System.out.println("[Move Event] " + now + ":"
@@ -560,33 +1046,20 @@ public class Checkout {
                             + ", waiting time " + waitTimeInQueue);
                 }
             }
+            movePhase.commitPhase(steadyState.modelName, now);
 
             // ========== collect reporting data ==========
-            // compute waiting queue size
-            int currentWaitingQueueSize = 0;
-            for (final Deque<Customer> waitingQueue : waitingQueues) {
-                currentWaitingQueueSize += waitingQueue.size();
-            }
-            weightedCustomersInQueue += currentWaitingQueueSize;
-            maxCustomerWaitingCount = Math.max(maxCustomerWaitingCount, currentWaitingQueueSize);
-
-            // compute busy checkout count
-            int busyCheckout = 0;
-            for (int i = 0; i < checkoutCompletionTime.size(); ++i) {
-                if (checkoutCompletionTime.get(i) != null) {
-                    ++busyCheckout;
-                }
-            }
-            weightedCustomersInStore += busyCheckout + currentWaitingQueueSize;
-            weightedCheckoutBusyTime += busyCheckout;
-            maxCustomerInStoreCount = Math.max(maxCustomerInStoreCount, busyCheckout + currentWaitingQueueSize);
-
+            final CollectPhaseEvent collectPhase = new CollectPhaseEvent();
+            collectPhase.begin();
             // log summery if verbose logging or state change logging is enabled
             if (ENABLE_DEBUG_LOGGING) {
                 System.out.println("[Summery] " + now + ":"
                         + " queue size " + printWaitingQueues(waitingQueues)
                         + ", checkout " + printStations(checkoutCompletionTime, now));
             }
+
+            steadyState.endSecond();
+            collectPhase.commitPhase(steadyState.modelName, now);
         }
 
         // ----------------------------- model reporting -----------------------------
@@ -594,40 +1067,890 @@ public class Checkout {
             System.out.println();
         }
 
-        System.out.printf("Customer arrived: %.2f/hr\n", (3600.0 * customerCount / runTime));
-        System.out.printf("Customer left: %.2f/hr\n", (3600.0 * customerMovingOutCount / runTime));
-        System.out.printf("Customer moved to checkout: %.2f/hr\n", (3600.0 * customerMovedToCheckoutCont / runTime));
+        return steadyState.steadyStateStats();
+    }
+
+    /**
+     * Class collecting the statistics of a model run, or of a part of it
+     */
+    static class ModelStats {
+        long observedTime = 0;                  // number of seconds the stats were collected over
+        long customerCount = 0;                 // count number customers arrived to the store
+        long customerMovedToCheckoutCont = 0;   // count number of customers moved to checkout after waiting in the queue
+        long customerMovingOutCount = 0;        // count number of customers leaving the store
+        long maxCustomerWaitingCount = 0;       // tracks max number of customers waiting in the waiting queue
+        long maxCustomerInStoreCount = 0;       // tracks max number of customers in the store
+        long weightedCustomersInQueue = 0;      // sum up number of customers waiting in the queue each sec
+        long weightedCustomersInStore = 0;      // sum up number of customers waiting in the store each sec
+        long weightedCheckoutBusyTime = 0;      // sum up number of busy stations each sec
+        long weightedOpenStations = 0;          // sum up number of open stations each sec
+        long weightedWaitingTime = 0;           // sum up the time spent in the waiting queue by all customers
+        long weightedTimeInStore = 0;           // sum up the time spent in the store by all customers
+        long warmUpTime = -1;                   // seconds discarded as warm-up, -1 without steady state detection
+        boolean converged = false;              // set if the run stopped once the stats converged
+
+        /**
+         * Add the stats of the seconds right after these stats
+         *
+         * @param other    stats of the following seconds
+         */
+        void add(final ModelStats other) {
+            this.observedTime += other.observedTime;
+            this.customerCount += other.customerCount;
+            this.customerMovedToCheckoutCont += other.customerMovedToCheckoutCont;
+            this.customerMovingOutCount += other.customerMovingOutCount;
+            this.maxCustomerWaitingCount = Math.max(this.maxCustomerWaitingCount, other.maxCustomerWaitingCount);
+            this.maxCustomerInStoreCount = Math.max(this.maxCustomerInStoreCount, other.maxCustomerInStoreCount);
+            this.weightedCustomersInQueue += other.weightedCustomersInQueue;
+            this.weightedCustomersInStore += other.weightedCustomersInStore;
+            this.weightedCheckoutBusyTime += other.weightedCheckoutBusyTime;
+            this.weightedOpenStations += other.weightedOpenStations;
+            this.weightedWaitingTime += other.weightedWaitingTime;
+            this.weightedTimeInStore += other.weightedTimeInStore;
+        }
+
+        void print(final int numCheckoutStations) {
+            if (this.warmUpTime >= 0) {
+                System.out.printf("Steady state: warm-up truncated at %d sec, stopped at %d sec (%s)\n",
+                        this.warmUpTime, this.warmUpTime + this.observedTime,
+                        this.converged ? "converged" : "not converged by the end of the run");
+            }
+            System.out.printf("Customer arrived: %.2f/hr\n", (3600.0 * this.customerCount / this.observedTime));
+            System.out.printf("Customer left: %.2f/hr\n", (3600.0 * this.customerMovingOutCount / this.observedTime));
+            System.out.printf("Customer moved to checkout: %.2f/hr\n", (3600.0 * this.customerMovedToCheckoutCont / this.observedTime));
+
+            System.out.printf("Avg customers in the queue: %.2f\n", (1.0 * this.weightedCustomersInQueue / this.observedTime));
+            System.out.printf("Avg customers in the store: %.2f\n", (1.0 * this.weightedCustomersInStore / this.observedTime));
+            System.out.printf("Wait time in queue: %.2f sec\n", (1.0 * this.weightedWaitingTime / this.customerMovedToCheckoutCont));
+            System.out.printf("Wait time in store: %.2f sec\n", (1.0 * this.weightedTimeInStore / this.customerMovingOutCount));
+
+            // busy share of the open checkouts; all of them, unless a staffing policy closed some
+            final double avgOpenStations = 1.0 * this.weightedOpenStations / this.observedTime;
+            if (avgOpenStations < numCheckoutStations) {
+                System.out.printf("Avg checkouts open: %.2f of %d\n", avgOpenStations, numCheckoutStations);
+            }
+            System.out.printf("Checkout was busy: %.2f%% of the time\n", (100.0 * this.weightedCheckoutBusyTime / this.observedTime) / avgOpenStations);
+
+            System.out.printf("Max number of customers in the queue: %d\n", this.maxCustomerWaitingCount);
+            System.out.printf("Max number of customers in the store: %d\n", this.maxCustomerInStoreCount);
+            System.out.println();
+        }
+    }
+
+    /**
+     * A count that changes at events, summed and maxed over its values at the end of each second
+     * The sum and max are brought up to date lazily: a value is added in once, for all the seconds
+     * it held, when it is replaced or collected, so the cost is per event and not per second.
+     */
+    private static class TimeWeightedCount {
+        long value = 0;                         // the current count
+        int since = 0;                          // first second that ends with the current count
+        long sum = 0;                           // sum of the end of second counts before since
+        long max = 0;                           // max of the end of second counts before since
 
-        System.out.printf("Avg customers in the queue: %.2f\n", (1.0 * weightedCustomersInQueue / runTime));
-        System.out.printf("Avg customers in the store: %.2f\n", (1.0 * weightedCustomersInStore / runTime));
-        System.out.printf("Wait time in queue: %.2f sec\n", (1.0 * weightedWaitingTime / customerMovedToCheckoutCont));
-        System.out.printf("Wait time in store: %.2f sec\n", (1.0 * weightedTimeInStore / customerMovingOutCount));
+        /**
+         * @param now      second of the event
+         * @param delta    change of the count
+         */
+        void add(final int now, final long delta) {
+            if (now > this.since) {             // seconds since..now-1 ended with the current count
+                this.sum += this.value * (now - this.since);
+                this.max = Math.max(this.max, this.value);
+                this.since = now;
+            }
+            this.value += delta;
+        }
 
-        System.out.printf("Checkout was busy: %.2f%% of the time\n", (100.0 * weightedCheckoutBusyTime / runTime) / numCheckoutStations);
+        /**
+         * Start a new collection; sum and max are first brought up to its start with add(start, 0)
+         */
+        void restart() {
+            this.sum = 0;
+            this.max = 0;
+        }
+    }
 
-        System.out.printf("Max number of customers in the queue: %d\n", maxCustomerWaitingCount);
-        System.out.printf("Max number of customers in the store: %d\n", maxCustomerInStoreCount);
-        System.out.println();
+    /**
+     * Class keeping the number of customers waiting, at a checkout and in the store up to date at the
+     * arrive, move and leave events (and the number of open checkouts at the staffing events), and
+     * collecting their per second sums and maxes for the stats
+     */
+    private static class StoreCounts {
+        final TimeWeightedCount waiting = new TimeWeightedCount();
+        final TimeWeightedCount busy = new TimeWeightedCount();
+        final TimeWeightedCount inStore = new TimeWeightedCount();
+        final TimeWeightedCount open = new TimeWeightedCount();
+
+        void arrive(final int now) {
+            this.waiting.add(now, 1);
+            this.inStore.add(now, 1);
+        }
+
+        void move(final int now) {
+            this.waiting.add(now, -1);
+            this.busy.add(now, 1);
+        }
+
+        void leave(final int now) {
+            this.busy.add(now, -1);
+            this.inStore.add(now, -1);
+        }
+
+        /**
+         * Add the sums and maxes of the seconds since the last collection to stats
+         *
+         * @param stats    stats of those seconds
+         * @param end      second after the last one to collect
+         */
+        void collectInto(final ModelStats stats, final int end) {
+            this.waiting.add(end, 0);
+            this.busy.add(end, 0);
+            this.inStore.add(end, 0);
+            this.open.add(end, 0);
+            stats.weightedCustomersInQueue += this.waiting.sum;
+            stats.maxCustomerWaitingCount = Math.max(stats.maxCustomerWaitingCount, this.waiting.max);
+            stats.weightedCheckoutBusyTime += this.busy.sum;
+            stats.weightedCustomersInStore += this.inStore.sum;
+            stats.maxCustomerInStoreCount = Math.max(stats.maxCustomerInStoreCount, this.inStore.max);
+            stats.weightedOpenStations += this.open.sum;
+            this.waiting.restart();
+            this.busy.restart();
+            this.inStore.restart();
+            this.open.restart();
+        }
     }
 
-    public static void main(final String[] args) {
-        System.out.printf("Model 1: 1 queue, %d checkouts\n", CHECKOUT_STATION_COUNT);
-        model1QueueNCheckout(MODEL_RUN_TIME,
-                CUSTOMER_ARRIVAL_TIME_IN_SEC,
-                CHECKOUT_STATION_COUNT,
-                MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT);
+    /**
+     * Class collecting the stats in batches and detecting when the model reached its steady state
+     * Assuming:
+     * 1. the warm-up is the prefix of batches chosen by MSER (minimizing the marginal standard error
+     *    of the mean number of customers in the store over the remaining batches), of at most
+     *    STEADY_STATE_MAX_WARM_UP_SHARE of the batches
+     * 2. detection starts after STEADY_STATE_MIN_RUN_TIME_IN_SEC
+     * 3. the stats converged once the 95% confidence interval of that mean, from 20 batch means
+     *    over the steady state batches, is within STEADY_STATE_RELATIVE_PRECISION of the mean
+     */
+    private static class SteadyStateDetector {
+        final String modelName;                         // names the model in the profiling events
+        final boolean enabled;                          // if false, nothing is discarded and the run never stops early
+        final ArrayList<ModelStats> batches = new ArrayList<>(); // stats of every completed batch
+        ModelStats currentBatch = new ModelStats();     // stats of the batch being collected
+        final StoreCounts counts = new StoreCounts();   // customers waiting, at a checkout, and in the store
+        int elapsedTime = 0;                            // number of seconds collected
+        int warmUpBatches = 0;                          // number of leading batches to discard
+        boolean converged = false;                      // set once the steady state stats are precise enough
+        BatchThroughputEvent throughput = BatchThroughputEvent.start(); // profiling event of the current batch
+
+        SteadyStateDetector(final String modelName, final boolean enabled) {
+            this.modelName = modelName;
+            this.enabled = enabled;
+        }
+
+        /**
+         * Close the second just collected, and the batch if it is complete
+         */
+        void endSecond() {
+            ++this.elapsedTime;
+            if (++this.currentBatch.observedTime < STEADY_STATE_BATCH_LENGTH_IN_SEC) {
+                return;
+            }
+            this.counts.collectInto(this.currentBatch, this.elapsedTime);
+            this.throughput.commitBatch(this.modelName, this.batches.size(), this.currentBatch);
+            this.throughput = BatchThroughputEvent.start();
+            this.batches.add(this.currentBatch);
+            this.currentBatch = new ModelStats();
+
+            // re-evaluate as the run grows by ~5%, to keep the total cost linear in the run time
+            final int n = this.batches.size();
+            if (this.enabled && n >= minDetectBatches() && n % Math.max(1, n / 20) == 0) {
+                detect();
+            }
+        }
+
+        /**
+         * @return number of batches collected before the detection starts
+         */
+        static int minDetectBatches() {
+            return STEADY_STATE_MIN_RUN_TIME_IN_SEC / STEADY_STATE_BATCH_LENGTH_IN_SEC;
+        }
 
-        System.out.printf("Model 2: N queue (customer picks the smallest), %d checkouts\n", CHECKOUT_STATION_COUNT);
-        modelNQueuePickSmallestNCheckout(MODEL_RUN_TIME,
-                CUSTOMER_ARRIVAL_TIME_IN_SEC,
-                CHECKOUT_STATION_COUNT,
-                MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT);
+        /**
+         * @return seconds discarded as warm-up
+         */
+        long warmUpTime() {
+            return (long) this.warmUpBatches * STEADY_STATE_BATCH_LENGTH_IN_SEC;
+        }
 
-        System.out.printf("Model 3: N queue (customer picks random), %d checkouts\n", CHECKOUT_STATION_COUNT);
-        modelNQueuePickRandomtNCheckout(MODEL_RUN_TIME,
-                CUSTOMER_ARRIVAL_TIME_IN_SEC,
-                CHECKOUT_STATION_COUNT,
-                MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT);
+        /**
+         * @return stats over everything collected after the warm-up, with the warm-up if enabled
+         */
+        ModelStats steadyStateStats() {
+            if (this.currentBatch.observedTime > 0) {
+                this.counts.collectInto(this.currentBatch, this.elapsedTime);
+                this.batches.add(this.currentBatch);
+                this.currentBatch = new ModelStats();
+            }
+            if (this.enabled && !this.converged && this.batches.size() >= minDetectBatches()) {
+                detect();
+            }
+            final ModelStats stats = new ModelStats();
+            for (int i = this.warmUpBatches; i < this.batches.size(); ++i) {
+                stats.add(this.batches.get(i));
+            }
+            if (this.enabled) {
+                stats.warmUpTime = warmUpTime();
+                stats.converged = this.converged;
+            }
+            return stats;
+        }
+
+        private void detect() {
+            final int n = this.batches.size();
+            final double[] y = new double[n];   // avg customers in the store, per batch
+            for (int i = 0; i < n; ++i) {
+                y[i] = 1.0 * this.batches.get(i).weightedCustomersInStore / this.batches.get(i).observedTime;
+            }
+
+            // MSER: truncate at the d <= n * STEADY_STATE_MAX_WARM_UP_SHARE minimizing sum((y - mean)^2) / (n - d)^2 over y[d..n)
+            double sum = 0;
+            double sumOfSquares = 0;
+            double bestMser = Double.POSITIVE_INFINITY;
+            int bestD = 0;
+            for (int d = n - 1; d >= 0; --d) {
+                sum += y[d];
+                sumOfSquares += y[d] * y[d];
+                final int m = n - d;
+                final double mser = Math.max(0, sumOfSquares - sum * sum / m) / ((double) m * m);
+                if (d <= n * STEADY_STATE_MAX_WARM_UP_SHARE && mser <= bestMser) {
+                    bestMser = mser;
+                    bestD = d;
+                }
+            }
+            this.warmUpBatches = bestD;
+
+            // batch means over the steady state batches: 20 groups, t(0.975, 19) = 2.093; fewer groups
+            // estimate the variance so roughly that runs stop early whenever it happens to come out low
+            final int m = n - bestD;
+            if (m < STEADY_STATE_MIN_BATCHES) {
+                return;
+            }
+            final int groups = 20;
+            double groupSum = 0;
+            double groupSumOfSquares = 0;
+            for (int g = 0; g < groups; ++g) {
+                double groupMean = 0;
+                final int from = bestD + g * m / groups;
+                final int to = bestD + (g + 1) * m / groups;
+                for (int i = from; i < to; ++i) {
+                    groupMean += y[i];
+                }
+                groupMean /= (to - from);
+                groupSum += groupMean;
+                groupSumOfSquares += groupMean * groupMean;
+            }
+            final double mean = groupSum / groups;
+            final double variance = Math.max(0, (groupSumOfSquares - groups * mean * mean) / (groups - 1));
+            final double halfWidth = 2.093 * Math.sqrt(variance / groups);
+            this.converged = halfWidth <= STEADY_STATE_RELATIVE_PRECISION * mean;
+        }
+    }
+
+    /**
+     * JFR event of one phase of a simulated second, for profiling with the standard JFR tools
+     * The phase events come at a high rate, so they are off unless the recording turns them on,
+     * e.g. -XX:StartFlightRecording:filename=checkout.jfr,+checkout.MovePhase#enabled=true
+     * Without a recording that enables them, an event costs a check when it ends.
+     */
+    @Category({"Checkout", "Phases"})
+    @Enabled(false)
+    @StackTrace(false)
+    private abstract static class PhaseEvent extends Event {
+        @Label("Model")
+        String model;
+
+        @Label("Simulated Second")
+        int second;
+
+        /**
+         * End the phase, and record it if the recording enables this event type
+         *
+         * @param model     name of the model
+         * @param second    simulated second the phase belongs to
+         */
+        void commitPhase(final String model, final int second) {
+            if (shouldCommit()) {
+                this.model = model;
+                this.second = second;
+                commit();
+            }
+        }
+    }
+
+    @Name("checkout.ArrivePhase")
+    @Label("Arrive Phase")
+    @Description("Customers arriving and joining a waiting line")
+    private static class ArrivePhaseEvent extends PhaseEvent {
+    }
+
+    @Name("checkout.LeavePhase")
+    @Label("Leave Phase")
+    @Description("Customers who are done leaving their checkout station")
+    private static class LeavePhaseEvent extends PhaseEvent {
+    }
+
+    @Name("checkout.MovePhase")
+    @Label("Move Phase")
+    @Description("Waiting customers moving to a free checkout station")
+    private static class MovePhaseEvent extends PhaseEvent {
+    }
+
+    @Name("checkout.CollectPhase")
+    @Label("Collect Phase")
+    @Description("Collecting the reporting data of the second")
+    private static class CollectPhaseEvent extends PhaseEvent {
+    }
+
+    /**
+     * JFR event summing up a batch of STEADY_STATE_BATCH_LENGTH_IN_SEC simulated seconds: what happened in
+     * the store, and how fast it was simulated; recorded by any recording, e.g. -XX:StartFlightRecording
+     */
+    @Name("checkout.BatchThroughput")
+    @Label("Batch Throughput")
+    @Description("Simulated time and customers of a batch, and the simulation speed")
+    @Category("Checkout")
+    @StackTrace(false)
+    private static class BatchThroughputEvent extends Event {
+        @Label("Model")
+        String model;
+
+        @Label("Batch")
+        int batch;
+
+        @Label("Simulated Seconds")
+        long simulatedSeconds;
+
+        @Label("Customers Arrived")
+        long customersArrived;
+
+        @Label("Customers Moved To Checkout")
+        long customersMovedToCheckout;
+
+        @Label("Customers Left")
+        long customersLeft;
+
+        @Label("Avg Customers In Store")
+        double avgCustomersInStore;
+
+        @Label("Simulated Seconds Per Second")
+        double simulatedSecondsPerSecond;
+
+        private transient long startNanos;
+
+        /**
+         * @return a started event for the batch that begins now
+         */
+        static BatchThroughputEvent start() {
+            final BatchThroughputEvent event = new BatchThroughputEvent();
+            // always, as a recording may start before the batch ends; it is one clock read per batch
+            event.startNanos = System.nanoTime();
+            event.begin();
+            return event;
+        }
+
+        /**
+         * End the batch, and record it if the recording enables this event type
+         *
+         * @param model    name of the model
+         * @param batch    index of the batch in the run
+         * @param stats    stats of the batch
+         */
+        void commitBatch(final String model, final int batch, final ModelStats stats) {
+            if (shouldCommit()) {
+                this.model = model;
+                this.batch = batch;
+                this.simulatedSeconds = stats.observedTime;
+                this.customersArrived = stats.customerCount;
+                this.customersMovedToCheckout = stats.customerMovedToCheckoutCont;
+                this.customersLeft = stats.customerMovingOutCount;
+                this.avgCustomersInStore = 1.0 * stats.weightedCustomersInStore / stats.observedTime;
+                this.simulatedSecondsPerSecond = stats.observedTime / ((System.nanoTime() - this.startNanos) / 1e9);
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Class collecting the statistics of a group of independently simulated lines
+     */
+    private static class LineGroupStats {
+        long customerMovedToCheckoutCont = 0;   // count number of customers moved to checkout
+        long customerMovingOutCount = 0;        // count number of customers leaving the store
+        long weightedCustomersInQueue = 0;      // sum up number of customers waiting in the queue each sec
+        long weightedCheckoutBusyTime = 0;      // sum up number of busy stations each sec
+        long weightedWaitingTime = 0;           // sum up the time spent in the waiting queue by all customers
+        long weightedTimeInStore = 0;           // sum up the time spent in the store by all customers
+        long[] changes = new long[64];          // changes of the counts, as time << 2 | kind; sorted once complete
+        int changeCount = 0;                    // number of changes in use
+        int mergedChanges = 0;                  // number of changes merged into the totals so far
+
+        // kinds of change: a customer joins a line, moves to its checkout, or leaves the store
+        static final int ARRIVE = 0;
+        static final int MOVE = 1;
+        static final int LEAVE = 2;
+
+        /**
+         * Record a change of the counts; changes from the end of the run on never show in a max
+         *
+         * @param runTime    runtime of the simulation in sec
+         * @param time       time of the change
+         * @param kind       ARRIVE, MOVE or LEAVE
+         */
+        void addChange(final int runTime, final int time, final int kind) {
+            if (time >= runTime) {
+                return;
+            }
+            if (this.changeCount == this.changes.length) {
+                this.changes = Arrays.copyOf(this.changes, 2 * this.changes.length);
+            }
+            this.changes[this.changeCount++] = (long) time << 2 | kind;
+        }
+
+        /**
+         * @return the first change not merged yet
+         */
+        long nextChange() {
+            return this.changes[this.mergedChanges];
+        }
+    }
+
+    /**
+     * Simulate lines of model 3 on their own; each line and its station is a single server queue,
+     * so a customer starts checking out once they arrived and the customer before them left
+     *
+     * @param runTime           runtime of the simulation in sec
+     * @param routedCustomers   customers of each line, in order of arrival
+     * @param fromLine          first line to simulate
+     * @param toLine            line after the last line to simulate
+     * @return statistics of the simulated lines
+     */
+    private static LineGroupStats simulateLines(final int runTime, final List<List<Customer>> routedCustomers,
+                                                final int fromLine, final int toLine) {
+        final LineGroupStats stats = new LineGroupStats();
+        for (int line = fromLine; line < toLine; ++line) {
+            int checkoutFreeTime = 0;   // time the station of this line becomes free
+            for (final Customer customer : routedCustomers.get(line)) {
+                final int moveTime = Math.max(customer.timeOfArrival, checkoutFreeTime);
+                if (moveTime >= runTime) {   // this and every later customer is still waiting at the end
+                    stats.weightedCustomersInQueue += runTime - customer.timeOfArrival;
+                    stats.addChange(runTime, customer.timeOfArrival, LineGroupStats.ARRIVE);
+                    continue;
+                }
+                checkoutFreeTime = moveTime + customer.computeTimeSpentAtCheckInSecond();
+
+                ++stats.customerMovedToCheckoutCont;
+                stats.weightedWaitingTime += moveTime - customer.timeOfArrival;
+                stats.weightedCustomersInQueue += moveTime - customer.timeOfArrival;
+                stats.weightedCheckoutBusyTime += Math.min(checkoutFreeTime, runTime) - moveTime;
+                stats.addChange(runTime, customer.timeOfArrival, LineGroupStats.ARRIVE);
+                stats.addChange(runTime, moveTime, LineGroupStats.MOVE);
+                stats.addChange(runTime, checkoutFreeTime, LineGroupStats.LEAVE);
+
+                if (checkoutFreeTime < runTime) {
+                    ++stats.customerMovingOutCount;
+                    stats.weightedTimeInStore += checkoutFreeTime - customer.timeOfArrival;
+                }
+            }
+        }
+        Arrays.sort(stats.changes, 0, stats.changeCount);
+        return stats;
+    }
+
+    /**
+     * Model 3, simulated in parallel
+     * The line a customer picks does not depend on the queues, so all arrivals are routed up front
+     * and every line is simulated on its own, spread over the available cores. Uses the random
+     * numbers in the same order as modelNQueuePickRandomtNCheckout, and so gives the same results.
+     * All checkouts stay open: with a staffing policy the open lines depend on the queues, and
+     * the lines can no longer be simulated on their own.
+     *
+     * @param runTime                          runtime of the simulation in sec
+     * @param customersPerHour                 customer arrival rate for each hour of the run
+     * @param numCheckoutStations              number of checkout kiosks/queues
+     * @param minNumItems                      minimum number of items to check out
+     * @param maxNumItems                      maximum number of items to check out
+     * @return the stats of the run
+     */
+    static ModelStats modelNQueuePickRandomtNCheckoutParallel(final int runTime,
+                                                              final double[] customersPerHour,
+                                                              final int numCheckoutStations,
+                                                              final int minNumItems, final int maxNumItems) {
+        // ----------------------------- route the customers -----------------------------
+        final ArrivalProcess arrivals = new ArrivalProcess(customersPerHour, RAND);
+        final List<List<Customer>> routedCustomers = new ArrayList<>(numCheckoutStations);
+        for (int i = 0; i < numCheckoutStations; ++i) {
+            routedCustomers.add(new ArrayList<>());
+        }
+        long customerCount = 0;                  // count number customers arrived to the store
+        while (arrivals.getNextArrivalSecond() < runTime) {
+            final int now = (int) arrivals.getNextArrivalSecond();
+            arrivals.advance();
+            ++customerCount;
+
+            // create the customer
+            final Customer newCustomer = new Customer(customerCount, now,
+                    minNumItems + RAND.nextInt(maxNumItems - minNumItems),
+                    CHECKOUT_DURATION_PER_ITEM_SECOND_MIN + RAND.nextInt(CHECKOUT_DURATION_PER_ITEM_SECOND_MAX - CHECKOUT_DURATION_PER_ITEM_SECOND_MIN),
+                    PAY_DURATION_SECOND_MIN + RAND.nextInt(PAY_DURATION_SECOND_MAX - PAY_DURATION_SECOND_MIN));
+
+            routedCustomers.get(RAND.nextInt(numCheckoutStations)).add(newCustomer);
+        }
+
+        // ----------------------------- run the lines -----------------------------
+        final int numWorkers = Math.min(numCheckoutStations, Runtime.getRuntime().availableProcessors());
+        final List<LineGroupStats> groupStats = IntStream.range(0, numWorkers).parallel()
+                .mapToObj(w -> simulateLines(runTime, routedCustomers,
+                        w * numCheckoutStations / numWorkers, (w + 1) * numCheckoutStations / numWorkers))
+                .toList();
+
+        // ----------------------------- merge the stats -----------------------------
+        final ModelStats stats = new ModelStats();
+        stats.customerCount = customerCount;
+        stats.observedTime = runTime;
+        stats.weightedOpenStations = (long) runTime * numCheckoutStations;
+        for (final LineGroupStats group : groupStats) {
+            stats.customerMovedToCheckoutCont += group.customerMovedToCheckoutCont;
+            stats.customerMovingOutCount += group.customerMovingOutCount;
+            stats.weightedCustomersInQueue += group.weightedCustomersInQueue;
+            stats.weightedCheckoutBusyTime += group.weightedCheckoutBusyTime;
+            stats.weightedWaitingTime += group.weightedWaitingTime;
+            stats.weightedTimeInStore += group.weightedTimeInStore;
+        }
+        stats.weightedCustomersInStore = stats.weightedCustomersInQueue + stats.weightedCheckoutBusyTime;
+
+        // the max counts need the totals over all lines, which only change at the seconds with a change;
+        // merge the sorted changes of the groups, and sample the totals once all changes of a second are in
+        final PriorityQueue<LineGroupStats> groupsByNextChange = new PriorityQueue<>(Math.max(1, groupStats.size()),
+                Comparator.comparingLong(LineGroupStats::nextChange));
+        for (final LineGroupStats group : groupStats) {
+            if (group.changeCount > 0) {
+                groupsByNextChange.add(group);
+            }
+        }
+        long currentWaitingQueueSize = 0;
+        long currentStoreSize = 0;
+        while (!groupsByNextChange.isEmpty()) {
+            final LineGroupStats group = groupsByNextChange.poll();
+            final long change = group.changes[group.mergedChanges++];
+            final int kind = (int) (change & 3);
+            if (kind == LineGroupStats.ARRIVE) {
+                ++currentWaitingQueueSize;
+                ++currentStoreSize;
+            } else if (kind == LineGroupStats.MOVE) {
+                --currentWaitingQueueSize;
+            } else {
+                --currentStoreSize;
+            }
+            if (group.mergedChanges < group.changeCount) {
+                groupsByNextChange.add(group);
+            }
+            if (groupsByNextChange.isEmpty() || groupsByNextChange.peek().nextChange() >> 2 != change >> 2) {
+                stats.maxCustomerWaitingCount = Math.max(stats.maxCustomerWaitingCount, currentWaitingQueueSize);
+                stats.maxCustomerInStoreCount = Math.max(stats.maxCustomerInStoreCount, currentStoreSize);
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * A model, as a function of the scenario it runs
+     */
+    interface Model {
+        ModelStats run(int runTime, double[] customersPerHour, int numCheckoutStations,
+                       int minNumItems, int maxNumItems, boolean detectSteadyState);
+    }
+
+    /**
+     * Persistent cache of the stats of seeded model runs, so that rerunning a scenario is a lookup
+     * The cache file is memory mapped and holds a fixed table of BUCKETS x WAYS entries; a scenario
+     * hashes to one bucket, and a new result replaces the least recently used entry of its bucket,
+     * so the file never grows past its initial size. A header in front of the table records the layout;
+     * a file with another layout (an older version, or not a cache file at all) is cleared on open.
+     * Assuming:
+     * 1. the key covers every parameter the stats depend on; RESULT_CACHE_VERSION is bumped whenever
+     *    a model changes its results for the same scenario
+     * 2. one process uses the cache file at a time
+     */
+    private static class ResultCache implements AutoCloseable {
+        static final int BUCKETS = 1 << 10;         // number of buckets
+        static final int WAYS = 8;                  // entries per bucket
+        static final int KEY_BYTES = 32;            // SHA-256 of the scenario
+        static final int STATS_BYTES = 14 * Long.BYTES;
+        static final int ENTRY_BYTES = KEY_BYTES + Long.BYTES + STATS_BYTES; // key, last use, stats
+        static final int TABLE_BYTES = BUCKETS * WAYS * ENTRY_BYTES;
+        // header: magic, layout version, entry size, buckets, ways; bump the layout version whenever
+        // the meaning of the entry bytes changes
+        static final int MAGIC = 0x43484b43;        // "CHKC"
+        static final int LAYOUT_VERSION = 2;        // 2: the stats gained weightedOpenStations
+        static final int HEADER_BYTES = 32;
+
+        final FileChannel channel;
+        final MappedByteBuffer entries;
+        long clock = 0;                             // last use stamp handed out; 0 marks an empty entry
+
+        ResultCache(final Path file) throws IOException {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            final boolean layoutMatches = this.channel.size() == HEADER_BYTES + TABLE_BYTES && headerMatches();
+            if (!layoutMatches) {
+                this.channel.truncate(0);           // the table is mapped back in zeroed, that is empty
+            }
+            final MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            this.entries = this.channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, TABLE_BYTES);
+            if (!layoutMatches) {                   // the header goes last, once the table is empty
+                this.entries.force();
+                writeHeader(header);
+                header.force();
+            }
+            for (int offset = 0; offset < this.entries.capacity(); offset += ENTRY_BYTES) {
+                this.clock = Math.max(this.clock, this.entries.getLong(offset + KEY_BYTES));
+            }
+        }
+
+        /**
+         * @return the key of a scenario: the hash of the model, its parameters and the seed
+         */
+        static byte[] key(final String modelName, final long seed, final int runTime, final double[] customersPerHour,
+                          final int numCheckoutStations, final int minNumItems, final int maxNumItems,
+                          final boolean detectSteadyState) {
+            final String scenario = String.format(
+                    "v%d %s seed=%d runTime=%d customersPerHour=%s stations=%d items=%d-%d"
+                            + " itemSec=%d-%d paySec=%d-%d steadyState=%b/%d/%d/%d/%s/%s",
+                    RESULT_CACHE_VERSION, modelName, seed, runTime, Arrays.toString(customersPerHour),
+                    numCheckoutStations, minNumItems, maxNumItems,
+                    CHECKOUT_DURATION_PER_ITEM_SECOND_MIN, CHECKOUT_DURATION_PER_ITEM_SECOND_MAX,
+                    PAY_DURATION_SECOND_MIN, PAY_DURATION_SECOND_MAX,
+                    detectSteadyState, STEADY_STATE_BATCH_LENGTH_IN_SEC, STEADY_STATE_MIN_RUN_TIME_IN_SEC,
+                    STEADY_STATE_MIN_BATCHES, STEADY_STATE_MAX_WARM_UP_SHARE, STEADY_STATE_RELATIVE_PRECISION);
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(scenario.getBytes(StandardCharsets.UTF_8));
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        /**
+         * @param key    key of the scenario
+         * @return the cached stats of the scenario, null if it is not cached
+         */
+        ModelStats get(final byte[] key) {
+            final int bucket = bucketOffset(key);
+            for (int way = 0; way < WAYS; ++way) {
+                final int offset = bucket + way * ENTRY_BYTES;
+                if (this.entries.getLong(offset + KEY_BYTES) == 0) {
+                    return null; // entries fill up in order, the rest of the bucket is empty
+                }
+                if (keyMatches(offset, key)) {
+                    this.entries.putLong(offset + KEY_BYTES, ++this.clock);
+                    return readStats(offset + KEY_BYTES + Long.BYTES);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Cache the stats of a scenario, replacing the least recently used entry of its bucket if it is full
+         *
+         * @param key      key of the scenario
+         * @param stats    stats of the run
+         */
+        void put(final byte[] key, final ModelStats stats) {
+            final int bucket = bucketOffset(key);
+            int target = bucket;
+            for (int way = 0; way < WAYS; ++way) {
+                final int offset = bucket + way * ENTRY_BYTES;
+                final long lastUse = this.entries.getLong(offset + KEY_BYTES);
+                if (lastUse == 0 || keyMatches(offset, key)) {
+                    target = offset;
+                    break;
+                }
+                if (lastUse < this.entries.getLong(target + KEY_BYTES)) {
+                    target = offset;
+                }
+            }
+            // the entry is marked empty while it is rewritten, so a torn write is never read back
+            this.entries.putLong(target + KEY_BYTES, 0);
+            this.entries.put(target, key);
+            writeStats(target + KEY_BYTES + Long.BYTES, stats);
+            this.entries.putLong(target + KEY_BYTES, ++this.clock);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.entries.force();
+            this.channel.close();
+        }
+
+        private boolean headerMatches() throws IOException {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            this.channel.read(header, 0);
+            final ByteBuffer expected = ByteBuffer.allocate(HEADER_BYTES);
+            writeHeader(expected);
+            return header.flip().equals(expected.clear());
+        }
+
+        private static void writeHeader(final ByteBuffer header) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, LAYOUT_VERSION);
+            header.putInt(8, ENTRY_BYTES);
+            header.putInt(12, BUCKETS);
+            header.putInt(16, WAYS);
+        }
+
+        private int bucketOffset(final byte[] key) {
+            return (ByteBuffer.wrap(key).getInt() & (BUCKETS - 1)) * WAYS * ENTRY_BYTES;
+        }
+
+        private boolean keyMatches(final int offset, final byte[] key) {
+            return this.entries.slice(offset, KEY_BYTES).equals(ByteBuffer.wrap(key));
+        }
+
+        private ModelStats readStats(int offset) {
+            final ModelStats stats = new ModelStats();
+            stats.observedTime = this.entries.getLong(offset);
+            stats.customerCount = this.entries.getLong(offset += Long.BYTES);
+            stats.customerMovedToCheckoutCont = this.entries.getLong(offset += Long.BYTES);
+            stats.customerMovingOutCount = this.entries.getLong(offset += Long.BYTES);
+            stats.maxCustomerWaitingCount = this.entries.getLong(offset += Long.BYTES);
+            stats.maxCustomerInStoreCount = this.entries.getLong(offset += Long.BYTES);
+            stats.weightedCustomersInQueue = this.entries.getLong(offset += Long.BYTES);
+            stats.weightedCustomersInStore = this.entries.getLong(offset += Long.BYTES);
+            stats.weightedCheckoutBusyTime = this.entries.getLong(offset += Long.BYTES);
+            stats.weightedOpenStations = this.entries.getLong(offset += Long.BYTES);
+            stats.weightedWaitingTime = this.entries.getLong(offset += Long.BYTES);
+            stats.weightedTimeInStore = this.entries.getLong(offset += Long.BYTES);
+            stats.warmUpTime = this.entries.getLong(offset += Long.BYTES);
+            stats.converged = this.entries.getLong(offset += Long.BYTES) != 0;
+            return stats;
+        }
+
+        private void writeStats(int offset, final ModelStats stats) {
+            this.entries.putLong(offset, stats.observedTime);
+            this.entries.putLong(offset += Long.BYTES, stats.customerCount);
+            this.entries.putLong(offset += Long.BYTES, stats.customerMovedToCheckoutCont);
+            this.entries.putLong(offset += Long.BYTES, stats.customerMovingOutCount);
+            this.entries.putLong(offset += Long.BYTES, stats.maxCustomerWaitingCount);
+            this.entries.putLong(offset += Long.BYTES, stats.maxCustomerInStoreCount);
+            this.entries.putLong(offset += Long.BYTES, stats.weightedCustomersInQueue);
+            this.entries.putLong(offset += Long.BYTES, stats.weightedCustomersInStore);
+            this.entries.putLong(offset += Long.BYTES, stats.weightedCheckoutBusyTime);
+            this.entries.putLong(offset += Long.BYTES, stats.weightedOpenStations);
+            this.entries.putLong(offset += Long.BYTES, stats.weightedWaitingTime);
+            this.entries.putLong(offset += Long.BYTES, stats.weightedTimeInStore);
+            this.entries.putLong(offset += Long.BYTES, stats.warmUpTime);
+            this.entries.putLong(offset += Long.BYTES, stats.converged ? 1 : 0);
+        }
+    }
+
+    /**
+     * Run a model; a seeded run is looked up in the result cache first, and cached if it was not there
+     *
+     * @param cache         result cache, null to always run
+     * @param modelName     name of the model, part of the cache key
+     * @param model         the model
+     * @param seed          seed of the random generator, null to leave it unseeded
+     * @return the stats of the run
+     */
+    static ModelStats runModel(final ResultCache cache, final String modelName, final Model model,
+                               final Long seed, final int runTime, final double[] customersPerHour,
+                               final int numCheckoutStations, final int minNumItems, final int maxNumItems,
+                               final boolean detectSteadyState) {
+        if (seed == null) {
+            return model.run(runTime, customersPerHour, numCheckoutStations, minNumItems, maxNumItems, detectSteadyState);
+        }
+        final byte[] key = ResultCache.key(modelName, seed, runTime, customersPerHour,
+                numCheckoutStations, minNumItems, maxNumItems, detectSteadyState);
+        ModelStats stats = cache == null ? null : cache.get(key);
+        if (stats == null) {
+            RAND.setSeed(seed);
+            stats = model.run(runTime, customersPerHour, numCheckoutStations, minNumItems, maxNumItems, detectSteadyState);
+            if (cache != null) {
+                cache.put(key, stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @param args    optional seed; seeded runs are reproducible, and their stats are kept in RESULT_CACHE_FILE
+     */
+    public static void main(final String[] args) throws IOException {
+        // flat arrival rate
+        final double[] customersPerHour = {3600.0 / CUSTOMER_ARRIVAL_TIME_IN_SEC};
+        final Long seed = args.length > 0 ? Long.valueOf(args[0]) : null;
+
+        try (ResultCache cache = seed == null ? null : new ResultCache(RESULT_CACHE_FILE)) {
+            System.out.printf("Model 1: 1 queue, %d checkouts\n", CHECKOUT_STATION_COUNT);
+            runModel(cache, "model1", Checkout1::model1QueueNCheckout, seed, MODEL_RUN_TIME,
+                    customersPerHour,
+                    CHECKOUT_STATION_COUNT,
+                    MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT, true).print(CHECKOUT_STATION_COUNT);
+
+            System.out.printf("Model 2: N queue (customer picks the smallest), %d checkouts\n", CHECKOUT_STATION_COUNT);
+            runModel(cache, "model2", Checkout1::modelNQueuePickSmallestNCheckout, seed, MODEL_RUN_TIME,
+                    customersPerHour,
+                    CHECKOUT_STATION_COUNT,
+                    MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT, true).print(CHECKOUT_STATION_COUNT);
+
+            System.out.printf("Model 3: N queue (customer picks random), %d checkouts\n", CHECKOUT_STATION_COUNT);
+            runModel(cache, "model3", Checkout1::modelNQueuePickRandomtNCheckout, seed, MODEL_RUN_TIME,
+                    customersPerHour,
+                    CHECKOUT_STATION_COUNT,
+                    MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT, true).print(CHECKOUT_STATION_COUNT);
+
+            System.out.printf("Model 3 (lines simulated in parallel): N queue (customer picks random), %d checkouts\n",
+                    CHECKOUT_STATION_COUNT);
+            runModel(cache, "model3-parallel",
+                    (runTime, rates, numStations, minItems, maxItems, detectSteadyState) ->
+                            modelNQueuePickRandomtNCheckoutParallel(runTime, rates, numStations, minItems, maxItems),
+                    seed, MODEL_RUN_TIME,
+                    customersPerHour,
+                    CHECKOUT_STATION_COUNT,
+                    MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT, false).print(CHECKOUT_STATION_COUNT);
+
+            System.out.printf("Model 1 over a %d hour trading day: 1 queue, %d checkouts\n",
+                    TRADING_DAY_CUSTOMERS_PER_HOUR.length, CHECKOUT_STATION_COUNT);
+            runModel(cache, "model1", Checkout1::model1QueueNCheckout, seed, TRADING_DAY_CUSTOMERS_PER_HOUR.length * 3600,
+                    TRADING_DAY_CUSTOMERS_PER_HOUR,
+                    CHECKOUT_STATION_COUNT,
+                    MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT, false).print(CHECKOUT_STATION_COUNT); // the rates change, there is no steady state
+
+            System.out.printf("Model 2 over a %d hour trading day: N queue (customer picks the smallest), %d checkouts\n",
+                    TRADING_DAY_CUSTOMERS_PER_HOUR.length, CHECKOUT_STATION_COUNT);
+            runModel(cache, "model2", Checkout1::modelNQueuePickSmallestNCheckout, seed, TRADING_DAY_CUSTOMERS_PER_HOUR.length * 3600,
+                    TRADING_DAY_CUSTOMERS_PER_HOUR,
+                    CHECKOUT_STATION_COUNT,
+                    MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT, false).print(CHECKOUT_STATION_COUNT);
+
+            // the same day with checkouts opened and closed as the lines grow and shrink
+            final StaffingPolicy[] staffingPolicies = {
+                    new QueueLengthStaffing(STAFFING_MIN_OPEN_STATION_COUNT, 2.0, 0.5),
+                    new PredictedWaitStaffing(STAFFING_MIN_OPEN_STATION_COUNT,
+                            meanCheckoutTimeInSec(MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT), 180, 60)};
+            for (final StaffingPolicy staffingPolicy : staffingPolicies) {
+                System.out.printf("Model 2 over a %d hour trading day: N queue (customer picks the smallest), %d-%d checkouts open\n",
+                        TRADING_DAY_CUSTOMERS_PER_HOUR.length, STAFFING_MIN_OPEN_STATION_COUNT, STAFFING_MAX_STATION_COUNT);
+                System.out.println("Staffing: " + staffingPolicy);
+                runModel(cache, "model2 " + staffingPolicy,
+                        (runTime, rates, numStations, minItems, maxItems, detectSteadyState) ->
+                                modelNQueuePickSmallestNCheckout(runTime, rates, numStations, minItems, maxItems,
+                                        detectSteadyState, staffingPolicy),
+                        seed, TRADING_DAY_CUSTOMERS_PER_HOUR.length * 3600,
+                        TRADING_DAY_CUSTOMERS_PER_HOUR,
+                        STAFFING_MAX_STATION_COUNT,
+                        MIN_ITEMS_TO_CHECKOUT, MAX_ITEMS_TO_CHECKOUT, false).print(STAFFING_MAX_STATION_COUNT);
+            }
+        }
     }
 }
 
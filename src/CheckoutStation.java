@@ -0,0 +1,50 @@
+import java.util.Random;
+
+public class CheckoutStation {
+    private final StationType type;
+    private Customer currentCustomer;
+    private long completionSecond;
+
+    public CheckoutStation() {
+        this(StationType.REGULAR);
+    }
+
+    public CheckoutStation(StationType type) {
+        this.type = type;
+    }
+
+    // Copy of another station; the customer being served is copied too
+    public CheckoutStation(CheckoutStation other) {
+        this.type = other.type;
+        this.currentCustomer = other.currentCustomer == null ? null : new Customer(other.currentCustomer);
+        this.completionSecond = other.completionSecond;
+    }
+
+    public StationType getType() {
+        return this.type;
+    }
+
+    public boolean isAvailable() {
+        return this.currentCustomer == null;
+    }
+
+    // returns the second at which the station is free again
+    public long assignCustomer(Customer customer, long currentSecond, Random random) {
+        this.currentCustomer = customer;
+        customer.setStartCheckoutSecond(currentSecond);
+        this.completionSecond = currentSecond + customer.getTotalCheckoutTime(this.type, random);
+        return this.completionSecond;
+    }
+
+    public long getCompletionSecond() {
+        return this.completionSecond;
+    }
+
+    public void release() {
+        this.currentCustomer = null;
+    }
+
+    /*public boolean isBusy() {
+        return currentCustomer != null;
+    }*/
+}
@@ -0,0 +1,93 @@
+import java.util.Random;
+
+public class Customer {
+    // Baskets hold MIN_ITEMS to MAX_ITEMS items, unless a store asks for a different minimum
+    static final int MIN_ITEMS = 10;
+    static final int MAX_ITEMS = 35;
+
+    // private int arrivalSecond;
+    private final int numItems;
+    private int paymentTime;
+    private final int patience;
+    private long queueEntrySecond;
+    private long startCheckoutSecond;
+    private int lineIndex;
+    private TimingWheel.Timer<Customer> patienceTimer;
+
+    public Customer(long queueEntrySecond, Random random) {
+        this(queueEntrySecond, random, MIN_ITEMS);
+    }
+
+    public Customer(long queueEntrySecond, Random random, int minItems) {
+        this.queueEntrySecond = queueEntrySecond;
+        this.numItems = random.nextInt(minItems, MAX_ITEMS + 1);
+        this.paymentTime = random.nextInt(20, 61);     // 20-60 seconds
+        this.patience = random.nextInt(180, 601);      // gives up after 3-10 minutes in line
+    }
+
+    // Copy of another customer, without their patience timer
+    public Customer(Customer other) {
+        this.numItems = other.numItems;
+        this.paymentTime = other.paymentTime;
+        this.patience = other.patience;
+        this.queueEntrySecond = other.queueEntrySecond;
+        this.startCheckoutSecond = other.startCheckoutSecond;
+        this.lineIndex = other.lineIndex;
+    }
+
+    /*public int getArrivalSecond() {
+        return this.arrivalSecond;
+    }*/
+
+    public int getNumItems() {
+        return this.numItems;
+    }
+
+    public int getPaymentTime() {
+        return this.paymentTime;
+    }
+
+    public int getPatience() {
+        return this.patience;
+    }
+
+    public int getLineIndex() {
+        return this.lineIndex;
+    }
+
+    public void setLineIndex(int lineIndex) {
+        this.lineIndex = lineIndex;
+    }
+
+    public TimingWheel.Timer<Customer> getPatienceTimer() {
+        return this.patienceTimer;
+    }
+
+    public void setPatienceTimer(TimingWheel.Timer<Customer> patienceTimer) {
+        this.patienceTimer = patienceTimer;
+    }
+
+    public long getQueueEntrySecond() {
+        return this.queueEntrySecond;
+    }
+
+    public void setQueueEntrySecond(long second) {
+        this.queueEntrySecond = second;
+    }
+
+    public void setStartCheckoutSecond(long second) {
+        this.startCheckoutSecond = second;
+    }
+
+    public int getWaitTime() {
+        return (int) (this.startCheckoutSecond - this.queueEntrySecond);  // at most the patience
+    }
+
+    public int getTotalCheckoutTime(StationType stationType, Random random) {
+        int scanTime = 0;
+        for (int i = 0; i < this.numItems; i++) {
+            scanTime += stationType.getSecondsPerItem(random);
+        }
+        return scanTime + this.paymentTime;
+    }
+}
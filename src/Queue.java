@@ -1,4 +1,6 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 public class Queue<T> {
@@ -53,6 +55,14 @@ public class Queue<T> {
         return this.items.get(this.size() - 1);
     }
     
+    /*
+     * Remove the given item from wherever it is in the queue.
+     * Returns true if the item was found; false otherwise.
+     */
+    public boolean remove(T item) {
+        return this.items.remove(item);
+    }
+
     /*
      * Returns the number of items in the queue.
      */
@@ -60,6 +70,16 @@ public class Queue<T> {
         return this.items.size();
     }
     
+    /*
+     * Returns a copy of the items from head to tail;
+     * the queue is not changed.
+     */
+    public List<T> toList() {
+        List<T> list = new ArrayList<T>(this.items);
+        Collections.reverse(list);
+        return list;
+    }
+
     /*
      * Convert to string as an array from tail to head
      */
@@ -0,0 +1,594 @@
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class RegressionSuite {
+
+    /*
+     * Runs the models on fixed seeds, and fails (exit code 1) if their
+     * results changed or they got much slower.
+     *
+     * Results: the seeded runs of the models must match the golden results
+     * recorded in GOLDEN_RESULTS_FILE, field for field. Each optimized
+     * implementation is also run next to the reference implementation it
+     * replaces: if they draw their random numbers in the same order they
+     * must match seed for seed, otherwise they must pass a two-sample
+     * Kolmogorov-Smirnov test on every metric.
+     *
+     * Throughput is measured in simulated seconds per wall clock second,
+     * after a JIT warm-up, in a few rounds over all seeds. The reference
+     * and the optimized implementation take turns round by round, and the
+     * optimized one must not be slower than the reference in the same run,
+     * so the check holds on any machine. Absolute throughput is only
+     * checked on request: --record-throughput records a baseline for this
+     * machine in THROUGHPUT_BASELINE_FILE (not under version control), and
+     * as long as that file exists the best round of every implementation
+     * must stay close to the median round of the recording run.
+     *
+     * Run from the project root as java -Xbatch RegressionSuite: with the
+     * JIT compiling in the background, a machine with few cores runs the
+     * models many times slower for as long as the compiler is behind, and
+     * when that ends differs from run to run. After an intended change of
+     * the results, rerun with --record to rewrite the golden results.
+     */
+    private static final long FIRST_SEED = 1000;
+    private static final int SEEDS = 40;
+    private static final int WARM_UP_SEEDS = 5;
+    // the warm-up repeats its seeds for at least this long, and then until the JIT has compiled nothing
+    // new for a round's time; on few cores the compiler threads get behind, and the code speeds up many
+    // times over once they catch up
+    private static final long MIN_WARM_UP_NANOS = 1_000_000_000L;
+    private static final long MAX_WARM_UP_NANOS = 30_000_000_000L;
+    // the seeds are timed this many times; see checkThroughput for which round counts
+    private static final int TIMING_ROUNDS = 5;
+    // a round repeats the seeds for at least this long, so that short runs are not timed on clock noise
+    private static final long MIN_ROUND_NANOS = 200_000_000L;
+    // chance of a false alarm over all metrics of a comparison (Bonferroni corrected per metric)
+    private static final double FALSE_ALARM_RATE = 0.01;
+    // golden results, rewritten by --record, and the throughput baseline of this machine, by --record-throughput
+    private static final Path GOLDEN_RESULTS_FILE = Path.of("regression", "golden-results.tsv");
+    private static final Path THROUGHPUT_BASELINE_FILE = Path.of("regression", "throughput-baseline.tsv");
+    // an optimized implementation must be at least this fast relative to the reference it replaces
+    private static final double MIN_SPEEDUP = 1.0;
+    // an alternative kept for another reason than speed (e.g. memory) may be at most this much slower
+    private static final double MIN_ALTERNATIVE_THROUGHPUT_RATIO = 0.8;
+    // with a throughput baseline, an implementation may be at most this much slower than its baseline
+    private static final double MIN_BASELINE_THROUGHPUT_RATIO = 0.5;
+    // reference for the steady state runs: this many runs of this many simulated seconds, without detection
+    private static final int REFERENCE_RUNS = 20;
+    private static final int REFERENCE_RUN_TIME = 200 * 3600;
+    // t(0.975) for the 19-39 degrees of freedom of the reference and the converged runs, rounded up
+    private static final double T_95 = 2.1;
+
+    private static final String[] CHECKOUT1_METRICS = {"arrived/hr", "left/hr", "moved to checkout/hr",
+            "avg in queue", "avg in store", "wait in queue", "time in store", "busy", "max in queue", "max in store"};
+    private static final String[] CHECKOUT_METRICS = {"served", "avg wait", "max queue", "balk rate", "renege rate"};
+    // all fields of the stats, for the golden results
+    private static final String[] CHECKOUT1_FIELDS = {"observedTime", "customerCount", "customerMovedToCheckoutCont",
+            "customerMovingOutCount", "maxCustomerWaitingCount", "maxCustomerInStoreCount", "weightedCustomersInQueue",
+            "weightedCustomersInStore", "weightedCheckoutBusyTime", "weightedOpenStations", "weightedWaitingTime",
+            "weightedTimeInStore", "warmUpTime", "converged"};
+
+    // set by --record: the golden results are recorded instead of checked
+    private static boolean record;
+    // set by --record-throughput: the throughput baseline of this machine is recorded
+    private static boolean recordThroughput;
+    // implementation and seed (tab separated) -> fields of the run
+    private static Map<String, String> goldenResults;
+    // implementation -> simulated seconds per second; null without a throughput baseline
+    private static Map<String, String> throughputBaselines;
+
+    /*
+     * One implementation: a seed in, the metrics of the run out
+     */
+    private interface Implementation {
+        double[] run(long seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        record = Arrays.asList(args).contains("--record");
+        recordThroughput = Arrays.asList(args).contains("--record-throughput");
+        goldenResults = record ? new LinkedHashMap<>() : read(GOLDEN_RESULTS_FILE);
+        throughputBaselines = recordThroughput ? new LinkedHashMap<>()
+                : Files.exists(THROUGHPUT_BASELINE_FILE) ? read(THROUGHPUT_BASELINE_FILE) : null;
+        if (!ManagementFactory.getRuntimeMXBean().getInputArguments().contains("-Xbatch")) {
+            System.out.println("Not run with -Xbatch: the throughput may vary a lot from run to run\n");
+        }
+        List<String> failures = new ArrayList<>();
+
+        final int runTime = 7200;
+        final double[] customersPerHour = {120};
+        final int tradingDay = Checkout1.TRADING_DAY_CUSTOMERS_PER_HOUR.length * 3600;
+        final Checkout1.StaffingPolicy queueLengthStaffing = new Checkout1.QueueLengthStaffing(2, 2.0, 0.5);
+        final Checkout1.StaffingPolicy predictedWaitStaffing = new Checkout1.PredictedWaitStaffing(2,
+                Checkout1.meanCheckoutTimeInSec(1, 20), 180, 60);
+        golden("Checkout1 Model 1", CHECKOUT1_FIELDS, runTime,
+                seed -> fieldsOf(Checkout1.runModel(null, "model1", Checkout1::model1QueueNCheckout,
+                        seed, runTime, customersPerHour, 5, 1, 20, false)),
+                failures);
+        golden("Checkout1 Model 2", CHECKOUT1_FIELDS, runTime,
+                seed -> fieldsOf(Checkout1.runModel(null, "model2", Checkout1::modelNQueuePickSmallestNCheckout,
+                        seed, runTime, customersPerHour, 5, 1, 20, false)),
+                failures);
+        golden("Checkout1 Model 3", CHECKOUT1_FIELDS, runTime,
+                seed -> fieldsOf(Checkout1.runModel(null, "model3", Checkout1::modelNQueuePickRandomtNCheckout,
+                        seed, runTime, customersPerHour, 5, 1, 20, false)),
+                failures);
+        golden("Checkout1 Model 1 with steady state detection", CHECKOUT1_FIELDS, runTime,
+                seed -> fieldsOf(Checkout1.runModel(null, "model1", Checkout1::model1QueueNCheckout,
+                        seed, runTime, customersPerHour, 5, 1, 20, true)),
+                failures);
+        golden("Checkout1 Model 2 over a trading day, queue length staffing", CHECKOUT1_FIELDS, tradingDay,
+                seed -> fieldsOf(Checkout1.runModel(null, "model2",
+                        (time, rates, numStations, minItems, maxItems, detectSteadyState) ->
+                                Checkout1.modelNQueuePickSmallestNCheckout(time, rates, numStations, minItems, maxItems,
+                                        detectSteadyState, queueLengthStaffing),
+                        seed, tradingDay, Checkout1.TRADING_DAY_CUSTOMERS_PER_HOUR, 10, 1, 20, false)),
+                failures);
+        golden("Checkout1 Model 3 over a trading day, predicted wait staffing", CHECKOUT1_FIELDS, tradingDay,
+                seed -> fieldsOf(Checkout1.runModel(null, "model3",
+                        (time, rates, numStations, minItems, maxItems, detectSteadyState) ->
+                                Checkout1.modelNQueuePickRandomtNCheckout(time, rates, numStations, minItems, maxItems,
+                                        detectSteadyState, predictedWaitStaffing),
+                        seed, tradingDay, Checkout1.TRADING_DAY_CUSTOMERS_PER_HOUR, 10, 1, 20, false)),
+                failures);
+        Checkout checkout = new Checkout();
+        golden("Checkout Model 3", CHECKOUT_METRICS, runTime,
+                seed -> metricsOf(checkout.simulateModel3(seed, runTime)),
+                failures);
+
+        compare("Checkout1 Model 3: sequential vs parallel lines", CHECKOUT1_METRICS, runTime, true,
+                MIN_SPEEDUP,
+                seed -> metricsOf(Checkout1.runModel(null, "model3", Checkout1::modelNQueuePickRandomtNCheckout,
+                        seed, runTime, customersPerHour, 5, 1, 20, false)),
+                seed -> metricsOf(Checkout1.runModel(null, "model3-parallel",
+                        (time, rates, numStations, minItems, maxItems, detectSteadyState) ->
+                                Checkout1.modelNQueuePickRandomtNCheckoutParallel(time, rates, numStations, minItems, maxItems),
+                        seed, runTime, customersPerHour, 5, 1, 20, false)),
+                failures);
+
+        // Overloaded so that the line grows past several off-heap segments
+        final double[] overloadPerHour = {36000};
+        for (String model : new String[]{"model1", "model2", "model3"}) {
+            Checkout1.Model run = switch (model) {
+                case "model1" -> Checkout1::model1QueueNCheckout;
+                case "model2" -> Checkout1::modelNQueuePickSmallestNCheckout;
+                default -> Checkout1::modelNQueuePickRandomtNCheckout;
+            };
+            compare("Checkout1 " + model + ": heap vs off-heap waiting lines", CHECKOUT1_METRICS, runTime, true,
+                    MIN_ALTERNATIVE_THROUGHPUT_RATIO,
+                    seed -> metricsOf(Checkout1.runModel(null, model, run,
+                            seed, runTime, overloadPerHour, 5, 1, 20, false)),
+                    seed -> metricsOf(withOffHeapWaitingLines(() -> Checkout1.runModel(null, model, run,
+                            seed, runTime, overloadPerHour, 5, 1, 20, false))),
+                    failures);
+        }
+
+        compare("Checkout Model 3: sequential vs parallel lines", CHECKOUT_METRICS, runTime, false, MIN_SPEEDUP,
+                seed -> metricsOf(checkout.simulateModel3(seed, runTime)),
+                seed -> metricsOf(checkout.simulateModel3Parallel(seed, runTime)),
+                failures);
+
+        checkSteadyState(failures);
+
+        if (record) {
+            write(GOLDEN_RESULTS_FILE, "# implementation, seed, fields of the run", goldenResults);
+            System.out.println("Recorded " + GOLDEN_RESULTS_FILE);
+        }
+        if (recordThroughput) {
+            write(THROUGHPUT_BASELINE_FILE, "# implementation, simulated seconds per second", throughputBaselines);
+            System.out.println("Recorded " + THROUGHPUT_BASELINE_FILE);
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("All comparisons passed");
+        } else {
+            System.out.println(failures.size() + " comparison(s) failed:");
+            for (String failure : failures) {
+                System.out.println("  " + failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void compare(String name, String[] metricNames, int simulatedSeconds, boolean expectIdentical,
+                                double minThroughputRatio, Implementation reference, Implementation optimized,
+                                List<String> failures) {
+        System.out.println("=== " + name + " ===");
+
+        warmUp(reference);
+        warmUp(optimized);
+
+        double[][] referenceRuns = new double[SEEDS][];
+        double[][] optimizedRuns = new double[SEEDS][];
+        long[] referenceNanos = new long[TIMING_ROUNDS];
+        long[] optimizedNanos = new long[TIMING_ROUNDS];
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            referenceNanos[round] = timeRuns(reference, referenceRuns);
+            optimizedNanos[round] = timeRuns(optimized, optimizedRuns);
+        }
+
+        // Results
+        for (int m = 0; m < metricNames.length; m++) {
+            double[] referenceSample = column(referenceRuns, m);
+            double[] optimizedSample = column(optimizedRuns, m);
+            String means = String.format("%.4g vs %.4g", mean(referenceSample), mean(optimizedSample));
+            if (expectIdentical) {
+                int seed = firstDifference(referenceSample, optimizedSample);
+                System.out.printf("%-22s %s%s%n", metricNames[m], means,
+                        seed < 0 ? ", identical" : ", differs for seed " + (FIRST_SEED + seed));
+                if (seed >= 0) {
+                    failures.add(name + ": " + metricNames[m] + " differs for seed " + (FIRST_SEED + seed));
+                }
+            } else {
+                double pValue = kolmogorovSmirnovPValue(referenceSample, optimizedSample);
+                boolean differs = pValue < FALSE_ALARM_RATE / metricNames.length;
+                System.out.printf("%-22s %s, KS p-value %.3f%s%n", metricNames[m], means, pValue,
+                        differs ? " (different distribution)" : "");
+                if (differs) {
+                    failures.add(name + ": " + metricNames[m] + " has a different distribution (p = "
+                            + String.format("%.2g", pValue) + ")");
+                }
+            }
+        }
+
+        // Throughput: the ratio of each pair of rounds, which ran right after each other, and the median of those
+        double[] referenceThroughputs = throughputs(simulatedSeconds, referenceNanos);
+        double[] optimizedThroughputs = throughputs(simulatedSeconds, optimizedNanos);
+        double[] ratios = new double[TIMING_ROUNDS];
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            ratios[round] = (double) referenceNanos[round] / optimizedNanos[round];
+        }
+        Arrays.sort(ratios);
+        double ratio = ratios[TIMING_ROUNDS / 2];
+        System.out.printf("Throughput: %.0f vs %.0f simulated seconds/sec (%.2fx)%n",
+                referenceThroughputs[TIMING_ROUNDS / 2], optimizedThroughputs[TIMING_ROUNDS / 2], ratio);
+        if (ratio < minThroughputRatio) {
+            failures.add(String.format("%s: throughput %.2fx of the reference, below %.2fx", name, ratio,
+                    minThroughputRatio));
+        }
+        checkThroughput(name + ": reference", referenceThroughputs, failures);
+        checkThroughput(name + ": optimized", optimizedThroughputs, failures);
+        System.out.println();
+    }
+
+    /*
+     * Run an implementation on the seeds and check its results against the
+     * golden results, field for field, and its throughput against the baseline
+     */
+    private static void golden(String name, String[] fieldNames, int simulatedSeconds, Implementation implementation,
+                               List<String> failures) {
+        System.out.println("=== " + name + " ===");
+        warmUp(implementation);
+        double[][] runs = new double[SEEDS][];
+        long[] nanos = new long[TIMING_ROUNDS];
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            nanos[round] = timeRuns(implementation, runs);
+        }
+
+        int differences = 0;
+        for (int i = 0; i < SEEDS; i++) {
+            String key = name + "\t" + (FIRST_SEED + i);
+            String fields = format(runs[i]);
+            if (record) {
+                goldenResults.put(key, fields);
+                continue;
+            }
+            String expected = goldenResults.get(key);
+            if (expected == null) {
+                failures.add(name + ": no golden result recorded for seed " + (FIRST_SEED + i));
+                differences++;
+            } else if (!expected.equals(fields)) {
+                String[] expectedFields = expected.split(",");
+                String[] actualFields = fields.split(",");
+                for (int f = 0; f < fieldNames.length; f++) {
+                    if (f >= expectedFields.length || !expectedFields[f].equals(actualFields[f])) {
+                        failures.add(String.format("%s: %s for seed %d is %s, golden %s", name, fieldNames[f],
+                                FIRST_SEED + i, actualFields[f], f < expectedFields.length ? expectedFields[f] : "none"));
+                        break;
+                    }
+                }
+                differences++;
+            }
+        }
+        System.out.println(record ? "Recorded " + SEEDS + " golden results"
+                : differences == 0 ? "All " + SEEDS + " seeds match the golden results"
+                : differences + " of " + SEEDS + " seeds differ from the golden results");
+        double[] throughputs = throughputs(simulatedSeconds, nanos);
+        System.out.printf("Throughput: %.0f simulated seconds/sec%n", throughputs[TIMING_ROUNDS - 1]);
+        checkThroughput(name, throughputs, failures);
+        System.out.println();
+    }
+
+    // Warm up the JIT on other seeds, so the timing is not of the interpreter or of an early compilation
+    private static void warmUp(Implementation implementation) {
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean compilationTimed = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        long start = System.nanoTime();
+        long compilationMillis = -1;
+        long lastCompilation = start;
+        long now;
+        do {
+            for (int i = 0; i < WARM_UP_SEEDS; i++) {
+                implementation.run(-1 - i);
+            }
+            now = System.nanoTime();
+            if (compilationTimed && compiler.getTotalCompilationTime() != compilationMillis) {
+                compilationMillis = compiler.getTotalCompilationTime();
+                lastCompilation = now;
+            }
+        } while (now - start < MIN_WARM_UP_NANOS
+                || (now - start < MAX_WARM_UP_NANOS && now - lastCompilation < MIN_ROUND_NANOS));
+    }
+
+    // Run the implementation on every seed into runs; returns the time one pass over the seeds took
+    private static long timeRuns(Implementation implementation, double[][] runs) {
+        long start = System.nanoTime();
+        long elapsed;
+        int passes = 0;
+        do {
+            for (int i = 0; i < SEEDS; i++) {
+                runs[i] = implementation.run(FIRST_SEED + i);
+            }
+            passes++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_ROUND_NANOS);
+        return elapsed / passes;
+    }
+
+    // Throughput of each timing round, slowest first
+    private static double[] throughputs(int simulatedSeconds, long[] roundNanos) {
+        double[] throughputs = new double[roundNanos.length];
+        for (int round = 0; round < roundNanos.length; round++) {
+            throughputs[round] = (double) SEEDS * simulatedSeconds / (roundNanos[round] / 1e9);
+        }
+        Arrays.sort(throughputs);
+        return throughputs;
+    }
+
+    /*
+     * Only with a throughput baseline. The baseline is the median round, so
+     * that one round that got the machine to itself does not set it; the
+     * check takes the best round, so that a busy moment during the check
+     * does not fail it
+     */
+    private static void checkThroughput(String implementation, double[] throughputs, List<String> failures) {
+        if (throughputBaselines == null) {
+            return;
+        }
+        if (recordThroughput) {
+            throughputBaselines.put(implementation, String.format("%.0f", throughputs[throughputs.length / 2]));
+            return;
+        }
+        double throughput = throughputs[throughputs.length - 1];
+        String baseline = throughputBaselines.get(implementation);
+        if (baseline == null) {
+            failures.add(implementation + ": no throughput baseline recorded");
+            return;
+        }
+        double ratio = throughput / Double.parseDouble(baseline);
+        System.out.printf("  %s: %.2fx of the %s simulated seconds/sec baseline%n", implementation, ratio, baseline);
+        if (ratio < MIN_BASELINE_THROUGHPUT_RATIO) {
+            failures.add(String.format("%s: throughput %.2fx of the baseline, below %.2fx", implementation, ratio,
+                    MIN_BASELINE_THROUGHPUT_RATIO));
+        }
+    }
+
+    // Exact text of the fields of a run: Double.toString reads back to the same double
+    private static String format(double[] fields) {
+        StringBuilder text = new StringBuilder();
+        for (double field : fields) {
+            text.append(text.length() == 0 ? "" : ",").append(field);
+        }
+        return text.toString();
+    }
+
+    // Tab separated key and value per line, the value after the last tab; # starts a comment line
+    private static Map<String, String> read(Path file) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(file)) {
+            int tab = line.lastIndexOf('\t');
+            if (!line.startsWith("#") && tab >= 0) {
+                entries.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        return entries;
+    }
+
+    private static void write(Path file, String header, Map<String, String> entries) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(header);
+        entries.forEach((key, value) -> lines.add(key + "\t" + value));
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines);
+    }
+
+    /*
+     * The default runs of Checkout1 (flat rate, 5 checkouts, steady state
+     * detection, at most MODEL_RUN_TIME) must converge on the right answer:
+     * the mean number of customers in the store over the converged runs
+     * must land within the 95% confidence interval of long reference runs
+     * on other seeds, widened by the uncertainty of that mean. Stopping at
+     * the first precise-looking stretch, or dropping too little warm-up,
+     * biases the converged runs and fails this check.
+     */
+    private static void checkSteadyState(List<String> failures) {
+        System.out.println("=== Checkout1: steady state detection converges on the long run means ===");
+        final double[] customersPerHour = {3600.0 / Checkout1.CUSTOMER_ARRIVAL_TIME_IN_SEC};
+        Checkout1.Model[] models = {Checkout1::model1QueueNCheckout, Checkout1::modelNQueuePickSmallestNCheckout,
+                Checkout1::modelNQueuePickRandomtNCheckout};
+        for (int m = 0; m < models.length; m++) {
+            double[] reference = new double[REFERENCE_RUNS];
+            for (int i = 0; i < REFERENCE_RUNS; i++) {
+                Checkout1.ModelStats stats = Checkout1.runModel(null, "model" + (m + 1), models[m],
+                        FIRST_SEED + SEEDS + i, REFERENCE_RUN_TIME, customersPerHour,
+                        Checkout1.CHECKOUT_STATION_COUNT, Checkout1.MIN_ITEMS_TO_CHECKOUT,
+                        Checkout1.MAX_ITEMS_TO_CHECKOUT, false);
+                reference[i] = 1.0 * stats.weightedCustomersInStore / stats.observedTime;
+            }
+
+            List<Double> converged = new ArrayList<>();
+            long warmUpTime = 0;
+            long stopTime = 0;
+            for (int i = 0; i < SEEDS; i++) {
+                Checkout1.ModelStats stats = Checkout1.runModel(null, "model" + (m + 1), models[m], FIRST_SEED + i,
+                        Checkout1.MODEL_RUN_TIME, customersPerHour, Checkout1.CHECKOUT_STATION_COUNT,
+                        Checkout1.MIN_ITEMS_TO_CHECKOUT, Checkout1.MAX_ITEMS_TO_CHECKOUT, true);
+                if (stats.converged) {
+                    converged.add(1.0 * stats.weightedCustomersInStore / stats.observedTime);
+                }
+                warmUpTime += stats.warmUpTime;
+                stopTime += stats.warmUpTime + stats.observedTime;
+            }
+            System.out.printf("Model %d: %d of %d converged, avg warm-up truncated at %d sec, avg stop at %d of %d sec%n",
+                    m + 1, converged.size(), SEEDS, warmUpTime / SEEDS, stopTime / SEEDS, Checkout1.MODEL_RUN_TIME);
+            if (converged.size() < 2) {
+                failures.add(String.format("Checkout1 Model %d: only %d of %d default runs converged",
+                        m + 1, converged.size(), SEEDS));
+                continue;
+            }
+
+            double referenceMean = mean(reference);
+            double referenceHalfWidth = T_95 * standardError(reference);
+            double[] convergedMeans = converged.stream().mapToDouble(Double::doubleValue).toArray();
+            double convergedMean = mean(convergedMeans);
+            double convergedHalfWidth = T_95 * standardError(convergedMeans);
+            double tolerance = Math.hypot(referenceHalfWidth, convergedHalfWidth);
+            System.out.printf("  avg in store: converged %.3f +- %.3f, reference %.3f +- %.3f%n",
+                    convergedMean, convergedHalfWidth, referenceMean, referenceHalfWidth);
+            if (Math.abs(convergedMean - referenceMean) > tolerance) {
+                failures.add(String.format("Checkout1 Model %d: converged runs average %.3f in the store,"
+                                + " outside the reference %.3f +- %.3f", m + 1, convergedMean, referenceMean,
+                        tolerance));
+            }
+        }
+        System.out.println();
+    }
+
+    // Run with the waiting lines of Checkout1 kept off-heap
+    private static Checkout1.ModelStats withOffHeapWaitingLines(Supplier<Checkout1.ModelStats> run) {
+        Checkout1.useOffHeapWaitingLines = true;
+        try {
+            return run.get();
+        } finally {
+            Checkout1.useOffHeapWaitingLines = false;
+        }
+    }
+
+    private static double[] fieldsOf(Checkout1.ModelStats stats) {
+        return new double[]{
+                stats.observedTime,
+                stats.customerCount,
+                stats.customerMovedToCheckoutCont,
+                stats.customerMovingOutCount,
+                stats.maxCustomerWaitingCount,
+                stats.maxCustomerInStoreCount,
+                stats.weightedCustomersInQueue,
+                stats.weightedCustomersInStore,
+                stats.weightedCheckoutBusyTime,
+                stats.weightedOpenStations,
+                stats.weightedWaitingTime,
+                stats.weightedTimeInStore,
+                stats.warmUpTime,
+                stats.converged ? 1 : 0};
+    }
+
+    private static double[] metricsOf(Checkout1.ModelStats stats) {
+        return new double[]{
+                3600.0 * stats.customerCount / stats.observedTime,
+                3600.0 * stats.customerMovingOutCount / stats.observedTime,
+                3600.0 * stats.customerMovedToCheckoutCont / stats.observedTime,
+                1.0 * stats.weightedCustomersInQueue / stats.observedTime,
+                1.0 * stats.weightedCustomersInStore / stats.observedTime,
+                1.0 * stats.weightedWaitingTime / stats.customerMovedToCheckoutCont,
+                1.0 * stats.weightedTimeInStore / stats.customerMovingOutCount,
+                1.0 * stats.weightedCheckoutBusyTime / stats.observedTime,
+                stats.maxCustomerWaitingCount,
+                stats.maxCustomerInStoreCount};
+    }
+
+    private static double[] metricsOf(StatisticsTracker tracker) {
+        return new double[]{
+                tracker.getTotalCustomersServed(),
+                tracker.getAverageWaitTime(),
+                tracker.getMaxQueueLength(),
+                tracker.getBalkRate(),
+                tracker.getRenegeRate()};
+    }
+
+    private static double[] column(double[][] runs, int metric) {
+        double[] sample = new double[runs.length];
+        for (int i = 0; i < runs.length; i++) {
+            sample[i] = runs[i][metric];
+        }
+        return sample;
+    }
+
+    private static double mean(double[] sample) {
+        return Arrays.stream(sample).average().orElse(Double.NaN);
+    }
+
+    // Standard error of the mean of the sample
+    private static double standardError(double[] sample) {
+        double mean = mean(sample);
+        double sumOfSquares = Arrays.stream(sample).map(x -> (x - mean) * (x - mean)).sum();
+        return Math.sqrt(sumOfSquares / (sample.length - 1) / sample.length);
+    }
+
+    // Index of the first seed whose results differ, -1 if there is none; NaN matches NaN
+    private static int firstDifference(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (Double.compare(a[i], b[i]) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * p-value of the two-sample Kolmogorov-Smirnov test that both samples
+     * come from the same distribution, from the asymptotic distribution
+     * of the largest distance between their empirical CDFs
+     */
+    private static double kolmogorovSmirnovPValue(double[] a, double[] b) {
+        double[] x = a.clone();
+        double[] y = b.clone();
+        Arrays.sort(x);
+        Arrays.sort(y);
+        int i = 0;
+        int j = 0;
+        double distance = 0;
+        while (i < x.length && j < y.length) {
+            double value = Math.min(x[i], y[j]);
+            while (i < x.length && x[i] == value) {
+                i++;
+            }
+            while (j < y.length && y[j] == value) {
+                j++;
+            }
+            distance = Math.max(distance, Math.abs((double) i / x.length - (double) j / y.length));
+        }
+
+        double n = (double) x.length * y.length / (x.length + y.length);
+        double lambda = (Math.sqrt(n) + 0.12 + 0.11 / Math.sqrt(n)) * distance;
+        if (lambda < 0.2) {
+            return 1;
+        }
+        double pValue = 0;
+        for (int k = 1; k <= 100; k++) {
+            pValue += 2 * (k % 2 == 1 ? 1 : -1) * Math.exp(-2.0 * k * k * lambda * lambda);
+        }
+        return Math.max(0, Math.min(1, pValue));
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class StationRouter {
+    // Customers are grouped into classes by basket size: class c has at most itemLimits[c] items.
+    // The limits are the distinct item limits of the stations, smallest first.
+    private final int[] itemLimits;
+    // For each class, the stations that accept it, lowest index first
+    private final int[][] eligibleStations;
+    // For each class, a min tree over the lines of its eligible stations; every node holds the
+    // station with the shortest line below it (lowest index on ties), -1 for empty leaves
+    private final int[][] shortestLineTrees;
+    // For each class and station, the leaf of the station in the tree, -1 if not eligible
+    private final int[][] treeLeaves;
+    private final int[] lineLengths;
+
+    public StationRouter(CheckoutStation[] stations) {
+        this.itemLimits = Arrays.stream(stations).mapToInt(station -> station.getType().getMaxItems())
+                .distinct().sorted().toArray();
+        this.eligibleStations = new int[this.itemLimits.length][];
+        this.shortestLineTrees = new int[this.itemLimits.length][];
+        this.treeLeaves = new int[this.itemLimits.length][stations.length];
+        this.lineLengths = new int[stations.length];
+
+        for (int c = 0; c < this.itemLimits.length; c++) {
+            int itemLimit = this.itemLimits[c];
+            this.eligibleStations[c] = IntStream.range(0, stations.length)
+                    .filter(i -> stations[i].getType().getMaxItems() >= itemLimit).toArray();
+
+            int leafCount = Integer.highestOneBit(Math.max(1, this.eligibleStations[c].length * 2 - 1));
+            int[] tree = new int[2 * leafCount];
+            Arrays.fill(tree, -1);
+            Arrays.fill(this.treeLeaves[c], -1);
+            for (int k = 0; k < this.eligibleStations[c].length; k++) {
+                tree[leafCount + k] = this.eligibleStations[c][k];
+                this.treeLeaves[c][this.eligibleStations[c][k]] = leafCount + k;
+            }
+            for (int node = leafCount - 1; node > 0; node--) {
+                tree[node] = this.shorterLine(tree[2 * node], tree[2 * node + 1]);
+            }
+            this.shortestLineTrees[c] = tree;
+        }
+    }
+
+    // Stations that accept a basket of numItems, lowest index first; empty if none does
+    public int[] getEligibleStations(int numItems) {
+        int c = this.classOf(numItems);
+        return c < 0 ? new int[0] : this.eligibleStations[c];
+    }
+
+    // A random station that accepts the basket, or -1 if none does
+    public int getRandomLine(int numItems, Random random) {
+        int[] eligible = this.getEligibleStations(numItems);
+        return eligible.length == 0 ? -1 : eligible[random.nextInt(eligible.length)];
+    }
+
+    // The station with the shortest line that accepts the basket (lowest index on ties), or -1
+    public int getShortestLine(int numItems) {
+        int c = this.classOf(numItems);
+        return c < 0 ? -1 : this.shortestLineTrees[c][1];
+    }
+
+    // Must be called whenever the line of a station grows or shrinks
+    public void setLineLength(int station, int length) {
+        this.lineLengths[station] = length;
+        for (int c = 0; c < this.itemLimits.length; c++) {
+            int leaf = this.treeLeaves[c][station];
+            if (leaf < 0) {
+                break;  // classes with larger baskets are not eligible either
+            }
+            int[] tree = this.shortestLineTrees[c];
+            for (int node = leaf / 2; node > 0; node /= 2) {
+                tree[node] = this.shorterLine(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+    }
+
+    private int shorterLine(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        if (this.lineLengths[a] != this.lineLengths[b]) {
+            return this.lineLengths[a] < this.lineLengths[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    // Smallest class whose item limit fits the basket, or -1 if the basket is too big for every station
+    private int classOf(int numItems) {
+        int c = Arrays.binarySearch(this.itemLimits, numItems);
+        if (c < 0) {
+            c = -c - 1;
+        }
+        return c < this.itemLimits.length ? c : -1;
+    }
+}
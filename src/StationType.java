@@ -0,0 +1,25 @@
+import java.util.Random;
+
+public enum StationType {
+    REGULAR(Integer.MAX_VALUE, 4, 6),   // any basket, 4-6 seconds per item
+    EXPRESS(10, 4, 6),                  // up to 10 items
+    SELF_CHECKOUT(20, 6, 9);            // up to 20 items, customers scan slower
+
+    private final int maxItems;
+    private final int minSecondsPerItem;
+    private final int maxSecondsPerItem;
+
+    StationType(int maxItems, int minSecondsPerItem, int maxSecondsPerItem) {
+        this.maxItems = maxItems;
+        this.minSecondsPerItem = minSecondsPerItem;
+        this.maxSecondsPerItem = maxSecondsPerItem;
+    }
+
+    public int getMaxItems() {
+        return this.maxItems;
+    }
+
+    public int getSecondsPerItem(Random random) {
+        return random.nextInt(this.minSecondsPerItem, this.maxSecondsPerItem + 1);
+    }
+}
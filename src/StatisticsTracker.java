@@ -0,0 +1,86 @@
+public class StatisticsTracker {
+    // Counts are 64-bit so a year of millions of customers a day does not overflow them
+    private long totalCustomersServed = 0;
+    // Wait times are summed with Kahan's compensated summation: the compensation holds the
+    // low-order part lost when the last wait time was added, so the total stays exact over long runs
+    private double totalWaitTimeSeconds = 0;
+    private double totalWaitTimeCompensation = 0;
+    private int maxQueueLength = 0;
+    private long totalCustomersArrived = 0;
+    private long totalCustomersBalked = 0;
+    private long totalCustomersReneged = 0;
+
+    public void recordCustomer(Customer newCustomer) {
+        this.totalCustomersServed++;
+        this.addWaitTime(newCustomer.getWaitTime());
+    }
+
+    public void recordArrival() {
+        this.totalCustomersArrived++;
+    }
+
+    public void recordBalk() {
+        this.totalCustomersBalked++;
+    }
+
+    public void recordRenege() {
+        this.totalCustomersReneged++;
+    }
+
+    public void updateMaxQueue(int currentQueueSize) {
+        if (currentQueueSize > this.maxQueueLength) {
+            this.maxQueueLength = currentQueueSize;
+        }
+    }
+
+    // Fold the counts of another tracker (e.g. of another line) into this one
+    public void merge(StatisticsTracker other) {
+        this.totalCustomersServed += other.totalCustomersServed;
+        this.addWaitTime(other.totalWaitTimeSeconds);
+        this.addWaitTime(-other.totalWaitTimeCompensation);
+        this.maxQueueLength = Math.max(this.maxQueueLength, other.maxQueueLength);
+        this.totalCustomersArrived += other.totalCustomersArrived;
+        this.totalCustomersBalked += other.totalCustomersBalked;
+        this.totalCustomersReneged += other.totalCustomersReneged;
+    }
+
+    public long getTotalCustomersServed() {
+        return this.totalCustomersServed;
+    }
+
+    public double getAverageWaitTime() {
+        if (this.totalCustomersServed == 0) return 0;
+        return this.totalWaitTimeSeconds / this.totalCustomersServed;
+    }
+
+    public int getMaxQueueLength() {
+        return this.maxQueueLength;
+    }
+
+    public long getTotalCustomersBalked() {
+        return this.totalCustomersBalked;
+    }
+
+    public long getTotalCustomersReneged() {
+        return this.totalCustomersReneged;
+    }
+
+    // share of arriving customers who walked away without joining a line
+    public double getBalkRate() {
+        if (this.totalCustomersArrived == 0) return 0;
+        return (double) this.totalCustomersBalked / this.totalCustomersArrived;
+    }
+
+    // share of arriving customers who left a line before reaching a station
+    public double getRenegeRate() {
+        if (this.totalCustomersArrived == 0) return 0;
+        return (double) this.totalCustomersReneged / this.totalCustomersArrived;
+    }
+
+    private void addWaitTime(double seconds) {
+        double compensated = seconds - this.totalWaitTimeCompensation;
+        double total = this.totalWaitTimeSeconds + compensated;
+        this.totalWaitTimeCompensation = (total - this.totalWaitTimeSeconds) - compensated;
+        this.totalWaitTimeSeconds = total;
+    }
+}
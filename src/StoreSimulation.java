@@ -0,0 +1,235 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class StoreSimulation {
+
+    /*
+     * Model 2, run second by second: every station has its own line and
+     * customers join the shortest line that takes their basket. Checkout's
+     * Model 2, its long horizon run and its what-if branches all run a
+     * StoreSimulation.
+     *
+     * Times and counts are 64-bit, and each second only touches the
+     * customers who arrive or give up and the stations that finish or just
+     * got a customer in their empty line, so a store of thousands of
+     * stations can run for years in constant memory. All randomness comes
+     * from one generator, so the run can be forked at any second into
+     * independent branches that start from exactly the same state.
+     */
+    private final List<Queue<Customer>> lines;
+    private final List<CheckoutStation> stations;
+    private final List<Integer> stationIndices;     // boxed once, for the completion wheel
+    private StationRouter router;
+    private final StatisticsTracker tracker;
+    private final TimingWheel<Customer> patienceTimeouts;
+    private final TimingWheel<Integer> checkoutCompletions;
+    // Stations that may be free with customers in their line; served once the arrivals and
+    // reneges of the second are in, lowest index first. A station can be listed more than once.
+    private final List<Integer> readyStations;
+    private final Random random;
+    private final ArrivalProcess arrivals;
+    private final int minItems;
+    private final int balkLineLength;
+    private long currentSecond;
+
+    /*
+     * Create an empty store that opens at second 0. The arrivals must draw
+     * their random numbers from the given generator, if any, for a fork to
+     * repeat them.
+     */
+    public StoreSimulation(StationType[] stationTypes, ArrivalProcess arrivals, Random random, int minItems,
+                           int balkLineLength) {
+        this.lines = new ArrayList<>();
+        this.stations = new ArrayList<>();
+        this.stationIndices = new ArrayList<>();
+        this.tracker = new StatisticsTracker();
+        this.patienceTimeouts = new TimingWheel<>(0);
+        this.checkoutCompletions = new TimingWheel<>(0);
+        this.readyStations = new ArrayList<>();
+        this.random = random;
+        this.arrivals = arrivals;
+        this.minItems = minItems;
+        this.balkLineLength = balkLineLength;
+        this.addStations(stationTypes);
+    }
+
+    /*
+     * Copy the whole state of another store. Only the customers in the
+     * store right now are copied; the statistics collected so far carry
+     * over as totals, so a fork costs the same at any point of the run.
+     */
+    private StoreSimulation(StoreSimulation other) {
+        this.currentSecond = other.currentSecond;
+        this.minItems = other.minItems;
+        this.balkLineLength = other.balkLineLength;
+        this.random = copyOf(other.random);
+        this.arrivals = new ArrivalProcess(other.arrivals, this.random);
+        this.tracker = new StatisticsTracker();
+        this.tracker.merge(other.tracker);
+        this.readyStations = new ArrayList<>(other.readyStations);
+
+        // The wheels are rebuilt from the copied customers and stations: the patience wheel
+        // has handled every second before this one, the completion wheel this one too
+        this.patienceTimeouts = new TimingWheel<>(Math.max(0, this.currentSecond - 1));
+        this.checkoutCompletions = new TimingWheel<>(this.currentSecond);
+
+        this.lines = new ArrayList<>();
+        for (Queue<Customer> otherLine : other.lines) {
+            Queue<Customer> line = new Queue<>();
+            for (Customer otherCustomer : otherLine.toList()) {
+                Customer customer = new Customer(otherCustomer);
+                line.enqueue(customer);
+                customer.setPatienceTimer(this.patienceTimeouts.schedule(customer,
+                        customer.getQueueEntrySecond() + customer.getPatience()));
+            }
+            this.lines.add(line);
+        }
+        this.stations = new ArrayList<>();
+        this.stationIndices = new ArrayList<>(other.stationIndices);
+        for (int i = 0; i < other.stations.size(); i++) {
+            CheckoutStation station = new CheckoutStation(other.stations.get(i));
+            if (!station.isAvailable()) {
+                this.checkoutCompletions.schedule(this.stationIndices.get(i), station.getCompletionSecond());
+            }
+            this.stations.add(station);
+        }
+        this.rebuildRouter();
+    }
+
+    /*
+     * Returns an independent copy of this store at the current second.
+     * The copy draws the same random numbers as this store would, so
+     * branches that change nothing also give the same results.
+     */
+    public StoreSimulation fork() {
+        return new StoreSimulation(this);
+    }
+
+    /*
+     * Open new stations, each with its own empty line
+     */
+    public void openStations(StationType... stationTypes) {
+        this.addStations(stationTypes);
+    }
+
+    /*
+     * Run the store up to (not including) the given second
+     */
+    public void runUntil(long endSecond) {
+        while (this.currentSecond < endSecond) {
+            this.step();
+        }
+    }
+
+    public long getCurrentSecond() {
+        return this.currentSecond;
+    }
+
+    public int getStationCount() {
+        return this.stations.size();
+    }
+
+    public StatisticsTracker getStatistics() {
+        return this.tracker;
+    }
+
+    private void step() {
+        // Customers arrive and join the shortest line that takes their basket, unless even that one is too long
+        while (this.arrivals.getNextArrivalSecond() <= this.currentSecond) {
+            this.arrivals.advance();
+            Customer customer = new Customer(this.currentSecond, this.random, this.minItems);
+            int shortestLineIndex = this.router.getShortestLine(customer.getNumItems());
+            this.tracker.recordArrival();
+            if (shortestLineIndex < 0 || this.lines.get(shortestLineIndex).size() >= this.balkLineLength) {
+                this.tracker.recordBalk();
+            } else {
+                Queue<Customer> line = this.lines.get(shortestLineIndex);
+                line.enqueue(customer);
+                this.router.setLineLength(shortestLineIndex, line.size());
+                customer.setLineIndex(shortestLineIndex);
+                customer.setPatienceTimer(this.patienceTimeouts.schedule(customer,
+                        this.currentSecond + customer.getPatience()));
+                this.tracker.updateMaxQueue(line.size());
+                if (line.size() == 1 && this.stations.get(shortestLineIndex).isAvailable()) {
+                    this.readyStations.add(this.stationIndices.get(shortestLineIndex));
+                }
+            }
+        }
+
+        // Customers who ran out of patience leave their line
+        this.patienceTimeouts.advance(this.currentSecond, customer -> {
+            Queue<Customer> line = this.lines.get(customer.getLineIndex());
+            line.remove(customer);
+            this.router.setLineLength(customer.getLineIndex(), line.size());
+            this.tracker.recordRenege();
+        });
+
+        // Free stations serve the next customer from their line
+        if (this.readyStations.size() > 1) {
+            Collections.sort(this.readyStations);
+        }
+        for (int i : this.readyStations) {
+            CheckoutStation station = this.stations.get(i);
+            Queue<Customer> line = this.lines.get(i);
+            if (station.isAvailable() && !line.isEmpty()) {
+                Customer nextCustomer = line.dequeue();
+                this.router.setLineLength(i, line.size());
+                this.patienceTimeouts.cancel(nextCustomer.getPatienceTimer());
+                this.checkoutCompletions.schedule(this.stationIndices.get(i),
+                        station.assignCustomer(nextCustomer, this.currentSecond, this.random));
+                this.tracker.recordCustomer(nextCustomer);
+            }
+        }
+        this.readyStations.clear();
+
+        // Free the stations whose customer is done by the end of this second; they serve their line next second
+        this.checkoutCompletions.advance(this.currentSecond + 1, i -> {
+            this.stations.get(i).release();
+            if (!this.lines.get(i).isEmpty()) {
+                this.readyStations.add(i);
+            }
+        });
+        this.currentSecond++;
+    }
+
+    private void addStations(StationType[] stationTypes) {
+        for (StationType type : stationTypes) {
+            this.stationIndices.add(this.stations.size());
+            this.lines.add(new Queue<>());
+            this.stations.add(new CheckoutStation(type));
+        }
+        this.rebuildRouter();
+    }
+
+    private void rebuildRouter() {
+        this.router = new StationRouter(this.stations.toArray(new CheckoutStation[0]));
+        for (int i = 0; i < this.lines.size(); i++) {
+            this.router.setLineLength(i, this.lines.get(i).size());
+        }
+    }
+
+    /*
+     * java.util.Random cannot be cloned, but it is serializable,
+     * and its serialized form is exactly its state
+     */
+    private static Random copyOf(Random random) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(random);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (Random) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not copy the random generator", e);
+        }
+    }
+}
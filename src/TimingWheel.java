@@ -0,0 +1,187 @@
+import java.util.function.Consumer;
+
+public class TimingWheel<T> {
+
+    /*
+     * Each level has 2^SLOT_BITS slots. A timer lives in level L when
+     * its deadline first differs from the clock in the L-th group of
+     * six bits, so four levels cover a little over 194 days; anything
+     * further out waits in an overflow list that is re-filed each time
+     * the top level wraps around.
+     */
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int SPAN_BITS = SLOT_BITS * LEVELS;
+
+    /*
+     * A scheduled timeout. Keep the handle to cancel it later.
+     */
+    public static final class Timer<T> {
+        private final T item;
+        private final long deadline;
+        private Timer<T> prev;
+        private Timer<T> next;
+
+        private Timer(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        public T getItem() {
+            return this.item;
+        }
+
+        public long getDeadline() {
+            return this.deadline;
+        }
+
+        /*
+         * Returns true while the timer is still waiting to fire
+         */
+        public boolean isPending() {
+            return this.prev != null;
+        }
+    }
+
+    /*
+     * Every slot is a circular doubly linked list with a sentinel
+     * head, so a timer can be unlinked without knowing its slot.
+     */
+    private final Timer<T>[][] slots;
+    private final Timer<T> overflow;
+    private long currentTime;
+    private int size;
+
+    /*
+     * Create an empty wheel whose clock starts at startTime
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long startTime) {
+        this.slots = new Timer[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timer<T> head = new Timer<>(null, -1);
+                head.prev = head;
+                head.next = head;
+                this.slots[level][slot] = head;
+            }
+        }
+        this.overflow = new Timer<>(null, -1);
+        this.overflow.prev = this.overflow;
+        this.overflow.next = this.overflow;
+        this.currentTime = startTime;
+    }
+
+    /*
+     * Schedule item to fire at deadline. Deadlines that are not in the
+     * future fire on the next tick. Runs in constant time.
+     */
+    public Timer<T> schedule(T item, long deadline) {
+        Timer<T> timer = new Timer<>(item, Math.max(deadline, this.currentTime + 1));
+        this.file(timer);
+        this.size++;
+        return timer;
+    }
+
+    /*
+     * Cancel a pending timer. Cancelling a timer that already fired
+     * or was cancelled does nothing. Runs in constant time.
+     */
+    public void cancel(Timer<T> timer) {
+        if (timer.isPending()) {
+            this.unlink(timer);
+            this.size--;
+        }
+    }
+
+    /*
+     * Move the clock forward to time, handing every item whose deadline
+     * has been reached to onExpire in deadline order. An empty wheel
+     * jumps straight to time.
+     */
+    public void advance(long time, Consumer<T> onExpire) {
+        while (this.currentTime < time) {
+            if (this.size == 0) {
+                this.currentTime = time;
+                return;
+            }
+            this.currentTime++;
+
+            // Pull timers down from any level that has just wrapped,
+            // highest level first so they can fall through the lower ones
+            if ((this.currentTime & ((1L << SPAN_BITS) - 1)) == 0) {
+                this.cascade(this.overflow);
+            }
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((this.currentTime & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    this.cascade(this.slots[level][(int) ((this.currentTime >>> (SLOT_BITS * level)) & SLOT_MASK)]);
+                }
+            }
+
+            Timer<T> head = this.slots[0][(int) (this.currentTime & SLOT_MASK)];
+            while (head.next != head) {
+                Timer<T> timer = head.next;
+                this.unlink(timer);
+                this.size--;
+                onExpire.accept(timer.item);
+            }
+        }
+    }
+
+    /*
+     * Returns the number of pending timers
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /*
+     * Detach the whole list first: timers that are still too far out
+     * for the overflow list would otherwise be filed back into it
+     */
+    private void cascade(Timer<T> head) {
+        if (head.next == head) {
+            return;
+        }
+        Timer<T> timer = head.next;
+        head.prev.next = null;
+        head.prev = head;
+        head.next = head;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            this.file(timer);
+            timer = next;
+        }
+    }
+
+    private void file(Timer<T> timer) {
+        long differingBits = timer.deadline ^ this.currentTime;
+        Timer<T> head;
+        if ((differingBits >>> SPAN_BITS) != 0) {
+            head = this.overflow;
+        } else {
+            int level = 0;
+            while ((differingBits >>> (SLOT_BITS * (level + 1))) != 0) {
+                level++;
+            }
+            head = this.slots[level][(int) ((timer.deadline >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        }
+        timer.prev = head.prev;
+        timer.next = head;
+        head.prev.next = timer;
+        head.prev = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+}